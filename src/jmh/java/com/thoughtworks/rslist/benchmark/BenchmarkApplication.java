@@ -0,0 +1,34 @@
+package com.thoughtworks.rslist.benchmark;
+
+import com.thoughtworks.rslist.RsListApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Boots the application without a web server on a fresh in-memory H2 database per trial
+final class BenchmarkApplication {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+
+  private BenchmarkApplication() {
+  }
+
+  // properties as name=value, passed as command line arguments so they override application.yml
+  static ConfigurableApplicationContext start(String... properties) {
+    List<String> args = new ArrayList<>(Arrays.asList(
+        "spring.datasource.url=jdbc:h2:mem:bench" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "logging.level.root=WARN"));
+    args.addAll(Arrays.asList(properties));
+    return new SpringApplicationBuilder(RsListApplication.class)
+        .web(WebApplicationType.NONE)
+        .logStartupInfo(false)
+        .run(args.stream().map(arg -> "--" + arg).toArray(String[]::new));
+  }
+}
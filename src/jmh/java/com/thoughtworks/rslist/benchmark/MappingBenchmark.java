@@ -0,0 +1,58 @@
+package com.thoughtworks.rslist.benchmark;
+
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.service.RankedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// entity to domain mapping alone, as done for every event on a live list read
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+  @Param({"100", "1000", "10000"})
+  int size;
+
+  List<RsEventDto> rsEventDtos;
+  List<RankedEvent> rankedEvents;
+
+  @Setup
+  public void setUp() {
+    UserDto userDto = UserDto.builder().id(1).userName("bench").build();
+    rsEventDtos = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      rsEventDtos.add(RsEventDto.builder().id(i).eventName("event " + i).keyword("keyword")
+          .voteNum(i).user(userDto).build());
+    }
+    rankedEvents = rsEventDtos.stream().map(RankedEvent::from).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<RankedEvent> dtoToRankedEvent() {
+    return rsEventDtos.stream().map(RankedEvent::from).collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public List<RsEvent> rankedEventToRsEvent() {
+    return rankedEvents.stream().map(RankedEvent::toRsEvent).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,94 @@
+package com.thoughtworks.rslist.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.api.RsController;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// GET /rs/list as the controller serves it, body serialised as the message converter would
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RsEventListBenchmark {
+  @Param({"100", "1000", "10000"})
+  int size;
+
+  @Param({"true", "false"})
+  boolean snapshot;
+
+  ConfigurableApplicationContext context;
+  RsController rsController;
+  ObjectMapper objectMapper;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start("rs.list.snapshot.enabled=" + snapshot);
+    rsController = context.getBean(RsController.class);
+    objectMapper = context.getBean(ObjectMapper.class);
+    UserDto userDto = context.getBean(UserRepository.class).save(UserDto.builder().userName("bench").age(20)
+        .phone("13386688553").email("bench@thoughtworks.com").gender("male").voteNum(0).build());
+    List<RsEventDto> rsEvents = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      rsEvents.add(RsEventDto.builder().eventName("event " + i).keyword("keyword " + i % 10)
+          .voteNum(i % 997).rankNum(i < 10 ? i + 1 : 0).user(userDto).build());
+    }
+    context.getBean(RsEventRepository.class).saveAll(rsEvents);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int listAll() throws Exception {
+    return render(rsController.getRsEventListBetween(null, null, null, webRequest()));
+  }
+
+  @Benchmark
+  public int listFirstPage() throws Exception {
+    return render(rsController.getRsEventListBetween(1, 10, null, webRequest()));
+  }
+
+  // one of ten keywords, should cost about the same as a global page
+  @Benchmark
+  public int listKeywordFirstPage() throws Exception {
+    return render(rsController.getRsEventListBetween(1, 10, "keyword 3", webRequest()));
+  }
+
+  private int render(ResponseEntity<?> response) throws Exception {
+    Object body = response.getBody();
+    return body instanceof byte[] ? ((byte[]) body).length : objectMapper.writeValueAsBytes(body).length;
+  }
+
+  private static ServletWebRequest webRequest() {
+    return new ServletWebRequest(new MockHttpServletRequest("GET", "/rs/list"), new MockHttpServletResponse());
+  }
+}
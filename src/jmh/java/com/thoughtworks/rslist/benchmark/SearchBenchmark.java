@@ -0,0 +1,70 @@
+package com.thoughtworks.rslist.benchmark;
+
+import com.thoughtworks.rslist.service.RankedEvent;
+import com.thoughtworks.rslist.service.RsEventLeaderboard;
+import com.thoughtworks.rslist.service.RsEventSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// the search index alone, names are "<word> <word> <n>" drawn from a small vocabulary plus a CJK run
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+  private static final String[] WORDS = {"stock", "market", "election", "football", "weather", "concert",
+      "vaccine", "festival", "airport", "satellite"};
+  private static final String[] CJK = {"热搜", "新闻", "体育", "娱乐", "科技"};
+
+  @Param({"100000", "1000000"})
+  int size;
+
+  RsEventSearchIndex rsEventSearchIndex;
+
+  @Setup
+  public void setUp() {
+    RsEventLeaderboard rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventSearchIndex = new RsEventSearchIndex(rsEventLeaderboard);
+    List<RankedEvent> rankedEvents = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      rankedEvents.add(RankedEvent.builder().id(i)
+          .eventName(WORDS[i % WORDS.length] + " " + WORDS[i / WORDS.length % WORDS.length] + " " + i)
+          .keyword(CJK[i % CJK.length] + "事件").voteNum(i % 997).build());
+    }
+    rsEventLeaderboard.reload(rankedEvents);
+    rsEventSearchIndex.reload(rankedEvents);
+  }
+
+  // one exact id term
+  @Benchmark
+  public List<RankedEvent> selectiveTerm() {
+    return rsEventSearchIndex.search("" + size / 2, 10);
+  }
+
+  // a word and a number prefix, the id prefix narrows the common word
+  @Benchmark
+  public List<RankedEvent> wordAndPrefix() {
+    return rsEventSearchIndex.search("stock 1234", 10);
+  }
+
+  // matches a tenth of all events, bounded by how many must be ranked
+  @Benchmark
+  public List<RankedEvent> commonWord() {
+    return rsEventSearchIndex.search("satellite", 10);
+  }
+}
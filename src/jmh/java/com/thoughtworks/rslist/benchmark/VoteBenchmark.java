@@ -0,0 +1,86 @@
+package com.thoughtworks.rslist.benchmark;
+
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.service.RsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// RsService.vote and RsService.buy against H2, every call a committed transaction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoteBenchmark {
+  static final int USERS = 100;
+  static final int EVENTS = 1000;
+
+  ConfigurableApplicationContext context;
+  RsService rsService;
+  List<Integer> userIds = new ArrayList<>();
+  List<Integer> rsEventIds = new ArrayList<>();
+  RsEvent bidEvent;
+  // every bid outbids the last, so each buy writes
+  AtomicInteger amount = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start();
+    rsService = context.getBean(RsService.class);
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    RsEventRepository rsEventRepository = context.getBean(RsEventRepository.class);
+    List<UserDto> users = new ArrayList<>();
+    for (int i = 0; i < USERS; i++) {
+      users.add(UserDto.builder().userName("user" + i).age(20).phone("13386688553")
+          .email("bench@thoughtworks.com").gender("male").voteNum(Integer.MAX_VALUE).build());
+    }
+    userRepository.saveAll(users).forEach(userDto -> userIds.add(userDto.getId()));
+    List<RsEventDto> rsEvents = new ArrayList<>();
+    for (int i = 0; i < EVENTS; i++) {
+      rsEvents.add(RsEventDto.builder().eventName("event " + i).keyword("keyword")
+          .rankNum(i == 0 ? 1 : 0).user(users.get(i % USERS)).build());
+    }
+    rsEventRepository.saveAll(rsEvents).forEach(rsEventDto -> rsEventIds.add(rsEventDto.getId()));
+    bidEvent = RsEvent.builder().eventName("bought").keyword("keyword").userId(userIds.get(0)).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void vote() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Vote vote = Vote.builder().userId(userIds.get(random.nextInt(USERS))).voteNum(1).build();
+    rsService.vote(vote, rsEventIds.get(random.nextInt(EVENTS)));
+  }
+
+  @Benchmark
+  public Object buy() {
+    return rsService.buy(amount.incrementAndGet(), 1, bidEvent).getStatusCode();
+  }
+}
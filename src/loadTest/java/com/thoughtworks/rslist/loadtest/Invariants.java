@@ -0,0 +1,106 @@
+package com.thoughtworks.rslist.loadtest;
+
+import com.thoughtworks.rslist.service.RankedEvent;
+import com.thoughtworks.rslist.service.RsEventLeaderboard;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// What must hold after a run, each broken rule reported as one line
+final class Invariants {
+  final JdbcTemplate jdbcTemplate;
+  final RsEventLeaderboard rsEventLeaderboard;
+  final LoadTest loadTest;
+
+  private final List<String> violations = new ArrayList<>();
+
+  Invariants(ConfigurableApplicationContext context, LoadTest loadTest) {
+    this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    this.rsEventLeaderboard = context.getBean(RsEventLeaderboard.class);
+    this.loadTest = loadTest;
+  }
+
+  List<String> check() {
+    checkBalances();
+    checkVoteCounts();
+    checkRanks();
+    return violations;
+  }
+
+  // no negative balance, and every balance is the start balance less the votes recorded for it
+  // and less exactly what the clients were told was accepted
+  private void checkBalances() {
+    Map<Integer, Long> recorded = sumBy("select user_id, sum(num) from vote group by user_id");
+    for (int i = 0; i < loadTest.userIds.size(); i++) {
+      int userId = loadTest.userIds.get(i);
+      int balance = jdbcTemplate.queryForObject("select vote_num from user where id = ?", Integer.class, userId);
+      long votes = recorded.getOrDefault(userId, 0L);
+      long accepted = loadTest.acceptedVoteNums.get(i);
+      if (balance < 0) {
+        violations.add("user " + userId + " has a negative balance " + balance);
+      }
+      if (balance + votes != loadTest.config.balance) {
+        violations.add("user " + userId + " balance " + balance + " and recorded votes " + votes
+            + " do not add up to " + loadTest.config.balance);
+      }
+      if (votes != accepted) {
+        violations.add("user " + userId + " has " + votes + " votes recorded but " + accepted + " acknowledged"
+            + (votes < accepted ? " (lost votes)" : " (phantom votes)"));
+      }
+    }
+  }
+
+  // each event's counter matches its vote rows, its hourly rollups and the in-memory leaderboard
+  private void checkVoteCounts() {
+    Map<Integer, Long> recorded = sumBy("select rs_event_id, sum(num) from vote group by rs_event_id");
+    Map<Integer, Long> rolledUp = sumBy("select rs_event_id, sum(vote_num) from vote_rollup group by rs_event_id");
+    for (int rsEventId : loadTest.rsEventIds) {
+      int voteNum = jdbcTemplate.queryForObject("select vote_num from rs_event where id = ?", Integer.class, rsEventId);
+      long votes = recorded.getOrDefault(rsEventId, 0L);
+      if (voteNum != votes) {
+        violations.add("event " + rsEventId + " counts " + voteNum + " votes but has " + votes + " recorded");
+      }
+      if (rolledUp.getOrDefault(rsEventId, 0L) != votes) {
+        violations.add("event " + rsEventId + " rollups sum to " + rolledUp.getOrDefault(rsEventId, 0L)
+            + " but has " + votes + " votes recorded");
+      }
+      Optional<RankedEvent> ranked = rsEventLeaderboard.find(rsEventId);
+      if (!ranked.isPresent() || ranked.get().getVoteNum() != voteNum) {
+        violations.add("event " + rsEventId + " leaderboard shows "
+            + ranked.map(rankedEvent -> String.valueOf(rankedEvent.getVoteNum())).orElse("nothing")
+            + " but the database " + voteNum);
+      }
+    }
+  }
+
+  // one event per purchased slot, holding the highest accepted bid, and one trade per accepted buy
+  private void checkRanks() {
+    for (int rank = 1; rank <= loadTest.config.ranks; rank++) {
+      List<Integer> amounts =
+          jdbcTemplate.queryForList("select amount from rs_event where rank_num = ?", Integer.class, rank);
+      if (amounts.size() != 1) {
+        violations.add("rank " + rank + " is held by " + amounts.size() + " events");
+      } else if (amounts.get(0) != loadTest.acceptedBids.get(rank)) {
+        violations.add("rank " + rank + " is held at " + amounts.get(0) + " but the highest accepted bid was "
+            + loadTest.acceptedBids.get(rank));
+      }
+    }
+    int trades = jdbcTemplate.queryForObject("select count(*) from trade", Integer.class);
+    if (trades != loadTest.acceptedBuys.get()) {
+      violations.add(trades + " trades recorded but " + loadTest.acceptedBuys.get() + " buys acknowledged");
+    }
+  }
+
+  private Map<Integer, Long> sumBy(String sql) {
+    Map<Integer, Long> sums = new HashMap<>();
+    jdbcTemplate.query(sql, resultSet -> {
+      sums.put(resultSet.getInt(1), resultSet.getLong(2));
+    });
+    return sums;
+  }
+}
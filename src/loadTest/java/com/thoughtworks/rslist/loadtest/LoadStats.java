@@ -0,0 +1,58 @@
+package com.thoughtworks.rslist.loadtest;
+
+import java.util.Arrays;
+
+// Latencies and outcomes of one operation on one thread; merged once the run is over
+final class LoadStats {
+  long accepted;
+  long rejected;
+  long failed;
+  private long[] latencies = new long[1024];
+  private int count;
+
+  void record(long nanos, int status) {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+    }
+    latencies[count++] = nanos;
+    // 202 is a vote queued in async mode, its outcome is reconciled from the ticket after the run
+    if (status == 200 || status == 202) {
+      accepted++;
+    } else if (status > 0) {
+      rejected++;
+    } else {
+      failed++;
+    }
+  }
+
+  void merge(LoadStats other) {
+    accepted += other.accepted;
+    rejected += other.rejected;
+    failed += other.failed;
+    if (count + other.count > latencies.length) {
+      latencies = Arrays.copyOf(latencies, count + other.count);
+    }
+    System.arraycopy(other.latencies, 0, latencies, count, other.count);
+    count += other.count;
+  }
+
+  String report(String name, double seconds) {
+    if (count == 0) {
+      return String.format("%-5s no requests", name);
+    }
+    long[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+    return String.format("%-5s %9.1f req/s  ok=%d rejected=%d failed=%d  p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+        name, count / seconds, accepted, rejected, failed,
+        millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)), millis(percentile(sorted, 0.999)),
+        millis(sorted[count - 1]));
+  }
+
+  private static long percentile(long[] sorted, double quantile) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
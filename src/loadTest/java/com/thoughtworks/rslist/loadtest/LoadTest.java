@@ -0,0 +1,301 @@
+package com.thoughtworks.rslist.loadtest;
+
+import com.thoughtworks.rslist.RsListApplication;
+import com.thoughtworks.rslist.domain.VoteTicket;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.service.TradeLedger;
+import com.thoughtworks.rslist.service.VoteQueue;
+import com.thoughtworks.rslist.service.VoteWriteBehindBuffer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Boots the application on an in-memory H2 database and a random port, then drives a mix of
+// POST /rs/vote, POST /rs/buy and GET /rs/list over HTTP from many threads. Reports throughput
+// and latency per operation and checks the database against what the clients were told.
+// Votes only go to unpurchased events, since a purchase overwrites the vote count of its slot.
+// Arguments are passed to the application, e.g. --rs.vote.write-behind.enabled=true. With
+// --rs.vote.async.enabled=true votes are acknowledged with 202 and a ticket; the tickets are
+// resolved once the run is over and only applied votes count as accepted.
+public class LoadTest {
+  static final long TICKET_WAIT_MS = 60_000;
+
+  final LoadTestConfig config;
+  final String baseUrl;
+  final List<Integer> userIds;
+  final List<Integer> rsEventIds;
+
+  // what the clients were told: accepted vote nums per user index, highest accepted bid per rank
+  final AtomicLongArray acceptedVoteNums;
+  final AtomicIntegerArray acceptedBids;
+  final AtomicInteger acceptedBuys = new AtomicInteger();
+  final AtomicInteger bidCeiling = new AtomicInteger();
+  // votes answered with 202, not counted as accepted until their ticket says APPLIED
+  final ConcurrentLinkedQueue<QueuedVote> queuedVotes = new ConcurrentLinkedQueue<>();
+
+  LoadTest(LoadTestConfig config, String baseUrl, List<Integer> userIds, List<Integer> rsEventIds) {
+    this.config = config;
+    this.baseUrl = baseUrl;
+    this.userIds = userIds;
+    this.rsEventIds = rsEventIds;
+    this.acceptedVoteNums = new AtomicLongArray(userIds.size());
+    this.acceptedBids = new AtomicIntegerArray(config.ranks + 1);
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadTestConfig config = new LoadTestConfig();
+    List<String> appArgs = new ArrayList<>(Arrays.asList(
+        "--server.port=0",
+        "--server.tomcat.max-threads=" + Math.max(200, config.threads),
+        "--spring.datasource.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "--spring.datasource.driver-class-name=org.h2.Driver",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--logging.level.root=WARN"));
+    appArgs.addAll(Arrays.asList(args));
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(RsListApplication.class)
+        .logStartupInfo(false)
+        .run(appArgs.toArray(new String[0]));
+    boolean passed;
+    try {
+      passed = run(config, context);
+    } finally {
+      context.close();
+    }
+    System.exit(passed ? 0 : 1);
+  }
+
+  static boolean run(LoadTestConfig config, ConfigurableApplicationContext context) throws Exception {
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    RsEventRepository rsEventRepository = context.getBean(RsEventRepository.class);
+    List<UserDto> users = new ArrayList<>();
+    for (int i = 0; i < config.users; i++) {
+      users.add(UserDto.builder().userName("load" + i).age(20).phone("13386688553")
+          .email("load@thoughtworks.com").gender("male").voteNum(config.balance).build());
+    }
+    List<Integer> userIds = new ArrayList<>();
+    userRepository.saveAll(users).forEach(userDto -> userIds.add(userDto.getId()));
+    List<RsEventDto> rsEvents = new ArrayList<>();
+    for (int i = 0; i < config.ranks + config.events; i++) {
+      rsEvents.add(RsEventDto.builder().eventName("event " + i).keyword("load")
+          .rankNum(i < config.ranks ? i + 1 : 0).user(users.get(i % users.size())).build());
+    }
+    List<Integer> rsEventIds = new ArrayList<>();
+    rsEventRepository.saveAll(rsEvents).stream().filter(rsEventDto -> rsEventDto.getRankNum() == 0)
+        .forEach(rsEventDto -> rsEventIds.add(rsEventDto.getId()));
+
+    String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    LoadTest loadTest = new LoadTest(config, baseUrl, userIds, rsEventIds);
+    System.out.println("load test: " + config);
+    LoadStats[] stats = loadTest.drive();
+
+    // everything acknowledged must be in the database before it is checked; queued votes are
+    // applied through voteAll, which may hand them to the write-behind buffer, so they go first
+    List<String> unresolved = new ArrayList<>();
+    VoteQueue voteQueue = context.getBean(VoteQueue.class);
+    if (voteQueue.isEnabled()) {
+      unresolved = loadTest.resolveTickets(voteQueue);
+    }
+    VoteWriteBehindBuffer voteWriteBehindBuffer = context.getBean(VoteWriteBehindBuffer.class);
+    if (voteWriteBehindBuffer.isEnabled()) {
+      voteWriteBehindBuffer.flush();
+    }
+    TradeLedger tradeLedger = context.getBean(TradeLedger.class);
+    if (tradeLedger.isEnabled()) {
+      tradeLedger.drain();
+    }
+
+    for (LoadTestConfig.Operation operation : LoadTestConfig.Operation.values()) {
+      System.out.println(stats[operation.ordinal()].report(operation.name().toLowerCase(), config.durationSeconds));
+    }
+    List<String> violations = new Invariants(context, loadTest).check();
+    violations.addAll(unresolved);
+    violations.forEach(violation -> System.out.println("VIOLATION " + violation));
+    System.out.println(violations.isEmpty() ? "invariants hold" : violations.size() + " invariant violations");
+    return violations.isEmpty();
+  }
+
+  // waits for every queued vote to be applied or refused and counts the applied ones as accepted;
+  // a ticket still queued at the deadline or already evicted cannot be reconciled
+  List<String> resolveTickets(VoteQueue voteQueue) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TICKET_WAIT_MS;
+    int[] outcomes = new int[VoteTicket.Status.values().length];
+    int expired = 0;
+    for (QueuedVote queuedVote : queuedVotes) {
+      Optional<VoteTicket> ticket = voteQueue.find(queuedVote.ticketId);
+      while (ticket.isPresent() && ticket.get().getStatus() == VoteTicket.Status.QUEUED
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+        ticket = voteQueue.find(queuedVote.ticketId);
+      }
+      if (!ticket.isPresent()) {
+        expired++;
+        continue;
+      }
+      outcomes[ticket.get().getStatus().ordinal()]++;
+      if (ticket.get().getStatus() == VoteTicket.Status.APPLIED) {
+        acceptedVoteNums.addAndGet(queuedVote.user, queuedVote.voteNum);
+      }
+    }
+    System.out.printf("queued votes: applied=%d rejected=%d failed=%d still-queued=%d expired=%d%n",
+        outcomes[VoteTicket.Status.APPLIED.ordinal()], outcomes[VoteTicket.Status.REJECTED.ordinal()],
+        outcomes[VoteTicket.Status.FAILED.ordinal()], outcomes[VoteTicket.Status.QUEUED.ordinal()], expired);
+    List<String> unresolved = new ArrayList<>();
+    if (outcomes[VoteTicket.Status.QUEUED.ordinal()] > 0) {
+      unresolved.add(outcomes[VoteTicket.Status.QUEUED.ordinal()] + " queued votes were not applied within "
+          + TICKET_WAIT_MS + "ms");
+    }
+    if (expired > 0) {
+      unresolved.add(expired + " vote tickets were evicted before they could be reconciled, run shorter");
+    }
+    return unresolved;
+  }
+
+  LoadStats[] drive() throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+    ExecutorService executor = Executors.newFixedThreadPool(config.threads);
+    List<Future<LoadStats[]>> workers = new ArrayList<>();
+    for (int i = 0; i < config.threads; i++) {
+      workers.add(executor.submit(() -> work(deadline)));
+    }
+    LoadStats[] total = newStats();
+    for (Future<LoadStats[]> worker : workers) {
+      LoadStats[] stats = worker.get();
+      for (int i = 0; i < total.length; i++) {
+        total[i].merge(stats[i]);
+      }
+    }
+    executor.shutdown();
+    return total;
+  }
+
+  private LoadStats[] work(long deadline) {
+    LoadStats[] stats = newStats();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (System.nanoTime() < deadline) {
+      LoadTestConfig.Operation operation = config.pick(random.nextInt(Integer.MAX_VALUE));
+      long start = System.nanoTime();
+      int status;
+      switch (operation) {
+        case VOTE:
+          status = vote(random);
+          break;
+        case BUY:
+          status = buy(random);
+          break;
+        default:
+          status = request("GET", random.nextBoolean() ? "/rs/list" : "/rs/list?start=1&end=10", null).status;
+      }
+      stats[operation.ordinal()].record(System.nanoTime() - start, status);
+    }
+    return stats;
+  }
+
+  private int vote(ThreadLocalRandom random) {
+    int user = random.nextInt(userIds.size());
+    int voteNum = 1 + random.nextInt(3);
+    Response response = request("POST", "/rs/vote/" + rsEventIds.get(random.nextInt(rsEventIds.size())),
+        "{\"userId\":" + userIds.get(user) + ",\"voteNum\":" + voteNum + "}");
+    if (response.status == 200) {
+      acceptedVoteNums.addAndGet(user, voteNum);
+    } else if (response.status == 202) {
+      String location = response.location;
+      queuedVotes.add(new QueuedVote(user, voteNum, location.substring(location.lastIndexOf('/') + 1)));
+    }
+    return response.status;
+  }
+
+  // bids hover around the highest bid so far, so some outbid the slot and some lose
+  private int buy(ThreadLocalRandom random) {
+    int rank = 1 + random.nextInt(config.ranks);
+    int amount = Math.max(1, bidCeiling.get() + random.nextInt(-3, 6));
+    bidCeiling.accumulateAndGet(amount, Math::max);
+    int status = request("POST", "/rs/buy?amount=" + amount + "&rank=" + rank,
+        "{\"eventName\":\"bought\",\"keyword\":\"load\",\"userId\":" + userIds.get(random.nextInt(userIds.size())) + "}").status;
+    if (status == 200) {
+      acceptedBuys.incrementAndGet();
+      acceptedBids.accumulateAndGet(rank, amount, Math::max);
+    }
+    return status;
+  }
+
+  // status 0 when the request failed to complete
+  private Response request(String method, String path, String body) {
+    try {
+      HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+      connection.setRequestMethod(method);
+      if (body != null) {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+          out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      int status = connection.getResponseCode();
+      // read to the end so the connection goes back to the keep-alive pool
+      try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+        if (in != null) {
+          byte[] buffer = new byte[8192];
+          while (in.read(buffer) != -1) {
+            // discard
+          }
+        }
+      }
+      return new Response(status, connection.getHeaderField("Location"));
+    } catch (IOException e) {
+      return new Response(0, null);
+    }
+  }
+
+  private static LoadStats[] newStats() {
+    LoadStats[] stats = new LoadStats[LoadTestConfig.Operation.values().length];
+    for (int i = 0; i < stats.length; i++) {
+      stats[i] = new LoadStats();
+    }
+    return stats;
+  }
+
+  private static class Response {
+    final int status;
+    final String location;
+
+    Response(int status, String location) {
+      this.status = status;
+      this.location = location;
+    }
+  }
+
+  private static class QueuedVote {
+    final int user;
+    final int voteNum;
+    final String ticketId;
+
+    QueuedVote(int user, int voteNum, String ticketId) {
+      this.user = user;
+      this.voteNum = voteNum;
+      this.ticketId = ticketId;
+    }
+  }
+}
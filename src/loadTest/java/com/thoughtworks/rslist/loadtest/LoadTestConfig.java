@@ -0,0 +1,43 @@
+package com.thoughtworks.rslist.loadtest;
+
+// Harness settings, read from -Dload.* system properties
+final class LoadTestConfig {
+  final int threads = Integer.getInteger("load.threads", 64);
+  final int durationSeconds = Integer.getInteger("load.duration-seconds", 30);
+  final int users = Integer.getInteger("load.users", 100);
+  final int balance = Integer.getInteger("load.balance", 1000);
+  // unpurchased events votes go to, 1 makes every vote contend on the same row
+  final int events = Integer.getInteger("load.events", 100);
+  // purchased slots bids go to, each seeded with one event
+  final int ranks = Integer.getInteger("load.ranks", 3);
+  final int voteWeight = Integer.getInteger("load.mix.vote", 70);
+  final int buyWeight = Integer.getInteger("load.mix.buy", 5);
+  final int listWeight = Integer.getInteger("load.mix.list", 25);
+
+  LoadTestConfig() {
+    if (threads < 1 || durationSeconds < 1 || users < 1 || events < 1 || ranks < 1) {
+      throw new IllegalArgumentException("load.threads, duration-seconds, users, events and ranks must be positive");
+    }
+    if (voteWeight < 0 || buyWeight < 0 || listWeight < 0 || voteWeight + buyWeight + listWeight == 0) {
+      throw new IllegalArgumentException("load.mix.* must be non-negative and not all zero");
+    }
+  }
+
+  Operation pick(int random) {
+    int roll = random % (voteWeight + buyWeight + listWeight);
+    if (roll < voteWeight) {
+      return Operation.VOTE;
+    }
+    return roll < voteWeight + buyWeight ? Operation.BUY : Operation.LIST;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("threads=%d duration=%ds users=%d balance=%d events=%d ranks=%d mix vote/buy/list=%d/%d/%d",
+        threads, durationSeconds, users, balance, events, ranks, voteWeight, buyWeight, listWeight);
+  }
+
+  enum Operation {
+    VOTE, BUY, LIST
+  }
+}
@@ -0,0 +1,23 @@
+package com.thoughtworks.rslist.api;
+
+import com.thoughtworks.rslist.domain.ImportResult;
+import com.thoughtworks.rslist.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+public class ImportController {
+  static final String NDJSON = "application/x-ndjson";
+
+  @Autowired ImportService importService;
+
+  @PostMapping(value = "/import", consumes = NDJSON)
+  public ResponseEntity<ImportResult> importRecords(InputStream body) throws IOException {
+    return ResponseEntity.ok(importService.importRecords(body));
+  }
+}
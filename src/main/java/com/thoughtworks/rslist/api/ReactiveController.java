@@ -0,0 +1,71 @@
+package com.thoughtworks.rslist.api;
+
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.exception.Error;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.service.RankedEvent;
+import com.thoughtworks.rslist.service.ReactiveReadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+// The read endpoints again, returned as Mono and Flux so the request thread is released while
+// they complete. Vote history as application/stream+json is written one vote per line as it is read.
+@RestController
+public class ReactiveController {
+  @Autowired ReactiveReadService reactiveReadService;
+
+  @GetMapping("/reactive/rs/list")
+  public Mono<List<RsEvent>> getRsEventListBetween(
+      @RequestParam(required = false) Integer start, @RequestParam(required = false) Integer end) {
+    if (start != null && end != null && (start < 1 || start > end)) {
+      throw new RequestNotValidException("invalid request param");
+    }
+    return reactiveReadService.findRsEvents(start, end)
+        .map(rankedEvents -> rankedEvents.stream().map(RankedEvent::toRsEvent).collect(Collectors.toList()));
+  }
+
+  @GetMapping("/reactive/rs/{index}")
+  public Mono<RsEvent> getRsEvent(@PathVariable int index) {
+    return reactiveReadService.findRsEvent(index)
+        .map(RankedEvent::toRsEvent)
+        .switchIfEmpty(Mono.error(() -> new RequestNotValidException("invalid index")));
+  }
+
+  @GetMapping(value = "/reactive/voteRecord",
+      produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+  public Flux<Vote> getVoteRecord(
+      @RequestParam int userId,
+      @RequestParam int rsEventId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new RequestNotValidException("invalid request param");
+    }
+    return reactiveReadService.findVotes(userId, rsEventId,
+        from == null ? VoteController.EARLIEST : from, to == null ? VoteController.LATEST : to);
+  }
+
+  // the read scheduler is saturated, the client should back off
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<Error> handleRejectedExecution(RejectedExecutionException e) {
+    Error error = new Error();
+    error.setError("too many concurrent reads");
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+  }
+}
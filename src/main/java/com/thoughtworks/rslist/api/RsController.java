@@ -1,28 +1,43 @@
 package com.thoughtworks.rslist.api;
 
 import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.domain.RsEventCursor;
 import com.thoughtworks.rslist.domain.Trade;
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
+import com.thoughtworks.rslist.domain.VoteTicket;
 import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.RsEventSummary;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.exception.Error;
 import com.thoughtworks.rslist.exception.RequestNotValidException;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.service.LeaderboardSnapshotPublisher;
+import com.thoughtworks.rslist.service.RankedEvent;
+import com.thoughtworks.rslist.service.RsEventExporter;
+import com.thoughtworks.rslist.service.RsEventLeaderboard;
+import com.thoughtworks.rslist.service.RsEventSearchIndex;
 import com.thoughtworks.rslist.service.RsService;
 import com.thoughtworks.rslist.service.UserService;
+import com.thoughtworks.rslist.service.VoteQueue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -30,55 +45,123 @@ import java.util.stream.Collectors;
 @RestController
 @Validated
 public class RsController {
+  static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+  static final int MAX_PAGE_SIZE = 100;
+  static final int MAX_BATCH_VOTES = 10_000;
+  static final int MAX_SEARCH_RESULTS = 100;
+
   @Autowired RsEventRepository rsEventRepository;
   @Autowired UserRepository userRepository;
   @Autowired RsService rsService;
   @Autowired UserService userService;
+  @Autowired RsEventLeaderboard rsEventLeaderboard;
+  @Autowired RsEventSearchIndex rsEventSearchIndex;
+  @Autowired RsEventExporter rsEventExporter;
+  @Autowired LeaderboardSnapshotPublisher leaderboardSnapshotPublisher;
+  @Autowired VoteQueue voteQueue;
 
+  // the leaderboard backed reads carry its version as ETag and answer If-None-Match with 304
+  // pre-rendered bytes when the snapshot is current, otherwise mapped and serialised here
   @GetMapping("/rs/list")
-  public ResponseEntity<List<RsEvent>> getRsEventListBetween(
-      @RequestParam(required = false) Integer start, @RequestParam(required = false) Integer end) {
-    List<RsEvent> rsEvents =
-        rsEventRepository.findAll().stream()
-            .map(
-                item ->
-                    RsEvent.builder()
-                        .eventName(item.getEventName())
-                        .keyword(item.getKeyword())
-                        .userId(item.getId())
-                        .voteNum(item.getVoteNum())
-                        .amount(item.getAmount())
-                        .rank(item.getRankNum())
-                        .build())
-            .collect(Collectors.toList());
+  public ResponseEntity<?> getRsEventListBetween(
+      @RequestParam(required = false) Integer start, @RequestParam(required = false) Integer end,
+      @RequestParam(required = false) String keyword, WebRequest webRequest) {
+    String version = rsEventLeaderboard.version();
+    if (webRequest.checkNotModified(version)) {
+      return null;
+    }
+    boolean all = start == null || end == null;
+    if (!all && (start < 1 || start > end)) {
+      throw new RequestNotValidException("invalid request param");
+    }
+    if (keyword != null) {
+      List<RankedEvent> rankedEvents = all
+          ? rsEventLeaderboard.keywordAll(keyword)
+          : rsEventLeaderboard.keywordRange(keyword, start, end);
+      return ResponseEntity.ok().eTag(version).body(
+          rankedEvents.stream().map(RankedEvent::toRsEvent).collect(Collectors.toList()));
+    }
+    Optional<byte[]> rendered = all
+        ? leaderboardSnapshotPublisher.findAll(version)
+        : leaderboardSnapshotPublisher.findRange(version, start, end);
+    if (rendered.isPresent()) {
+      return ResponseEntity.ok().eTag(version).contentType(MediaType.APPLICATION_JSON).body(rendered.get());
+    }
+    List<RankedEvent> rankedEvents = all ? rsEventLeaderboard.all() : rsEventLeaderboard.range(start, end);
+    return ResponseEntity.ok().eTag(version).body(
+        rankedEvents.stream().map(RankedEvent::toRsEvent).collect(Collectors.toList()));
+  }
+
+  @GetMapping(value = "/rs/list", params = "sort=hot")
+  public ResponseEntity<List<RsEvent>> getHotRsEventListBetween(
+      @RequestParam(required = false) Integer start, @RequestParam(required = false) Integer end,
+      WebRequest webRequest) {
+    String version = rsEventLeaderboard.version();
+    if (webRequest.checkNotModified(version)) {
+      return null;
+    }
+    List<RankedEvent> rankedEvents;
     if (start == null || end == null) {
-      return ResponseEntity.ok(rsEvents);
+      rankedEvents = rsEventLeaderboard.hotAll();
+    } else {
+      if (start < 1 || start > end) {
+        throw new RequestNotValidException("invalid request param");
+      }
+      rankedEvents = rsEventLeaderboard.hotRange(start, end);
+    }
+    return ResponseEntity.ok().eTag(version).body(
+        rankedEvents.stream().map(RankedEvent::toRsEvent).collect(Collectors.toList()));
+  }
+
+  @GetMapping(value = "/rs/list", params = "size")
+  public ResponseEntity<List<RsEvent>> getRsEventListAfter(
+      @RequestParam(required = false) String cursor, @RequestParam int size) {
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new RequestNotValidException("invalid request param");
+    }
+    List<RsEventSummary> page =
+        rsService.findRsEventsAfter(cursor == null ? null : RsEventCursor.decode(cursor), size);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (page.size() == size) {
+      response.header(NEXT_CURSOR_HEADER, RsEventCursor.of(page.get(size - 1)).encode());
+    }
+    return response.body(
+        page.stream()
+            .map(item -> RankedEvent.from(item).toRsEvent())
+            .collect(Collectors.toList()));
+  }
+
+  @GetMapping(value = "/rs/list", params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamRsEventList() {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(rsEventExporter::writeRanked);
+  }
+
+  // words or word prefixes found in the event name or keyword, best ranked first
+  @GetMapping("/rs/search")
+  public ResponseEntity<List<RsEvent>> searchRsEvents(
+      @RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+    if (q.trim().isEmpty() || limit < 1 || limit > MAX_SEARCH_RESULTS) {
+      throw new RequestNotValidException("invalid request param");
     }
-    return ResponseEntity.ok(rsEvents.subList(start - 1, end));
+    return ResponseEntity.ok(rsEventSearchIndex.search(q, limit).stream()
+        .map(RankedEvent::toRsEvent)
+        .collect(Collectors.toList()));
   }
 
   @GetMapping("/rs/{index}")
-  public ResponseEntity<RsEvent> getRsEvent(@PathVariable int index) {
-    List<RsEvent> rsEvents =
-        rsEventRepository.findAll().stream()
-            .map(
-                item ->
-                    RsEvent.builder()
-                        .eventName(item.getEventName())
-                        .keyword(item.getKeyword())
-                        .userId(item.getId())
-                        .voteNum(item.getVoteNum())
-                        .build())
-            .collect(Collectors.toList());
-    if (index < 1 || index > rsEvents.size()) {
-      throw new RequestNotValidException("invalid index");
+  public ResponseEntity<RsEvent> getRsEvent(@PathVariable int index, WebRequest webRequest) {
+    String version = rsEventLeaderboard.version();
+    if (webRequest.checkNotModified(version)) {
+      return null;
     }
-    return ResponseEntity.ok(rsEvents.get(index - 1));
+    RankedEvent rankedEvent =
+        rsEventLeaderboard.get(index).orElseThrow(() -> new RequestNotValidException("invalid index"));
+    return ResponseEntity.ok().eTag(version).body(rankedEvent.toRsEvent());
   }
 
   @PostMapping("/rs/event")
   public ResponseEntity addRsEvent(@RequestBody @Valid RsEvent rsEvent) {
-    Optional<UserDto> userDto = userRepository.findById(rsEvent.getUserId());
+    Optional<UserDto> userDto = userService.findById(rsEvent.getUserId());
     if (!userDto.isPresent()) {
       return ResponseEntity.badRequest().build();
     }
@@ -93,23 +176,42 @@ public class RsController {
     return ResponseEntity.created(null).build();
   }
 
+  // with rs.vote.async.enabled the vote is queued: 202 and a ticket to poll, 429 while the queue is full
   @PostMapping("/rs/vote/{id}")
   public ResponseEntity vote(@PathVariable int id, @RequestBody Vote vote) {
+    if (voteQueue.isEnabled()) {
+      Optional<VoteTicket> ticket = voteQueue.submit(vote, id);
+      if (!ticket.isPresent()) {
+        Error error = new Error();
+        error.setError("vote queue full");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+      }
+      return ResponseEntity.accepted()
+          .location(URI.create("/rs/vote/status/" + ticket.get().getId()))
+          .body(ticket.get());
+    }
     rsService.vote(vote, id);
     return ResponseEntity.ok().build();
   }
 
+  @GetMapping("/rs/vote/status/{ticketId}")
+  public ResponseEntity<VoteTicket> getVoteStatus(@PathVariable String ticketId) {
+    return voteQueue.find(ticketId)
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  @PostMapping("/rs/votes")
+  public ResponseEntity<List<VoteResult>> voteAll(@RequestBody List<Vote> votes) {
+    if (votes.size() > MAX_BATCH_VOTES) {
+      throw new RequestNotValidException("too many votes");
+    }
+    return ResponseEntity.ok(rsService.voteAll(votes));
+  }
+
   @PostMapping("/rs/buy")
   public ResponseEntity buyEvent(@RequestParam int amount, @RequestParam int rank,
                                  @RequestBody RsEvent rsEvent) {
     return rsService.buy(amount, rank, rsEvent);
   }
-
-
-  @ExceptionHandler(RequestNotValidException.class)
-  public ResponseEntity<Error> handleRequestErrorHandler(RequestNotValidException e) {
-    Error error = new Error();
-    error.setError(e.getMessage());
-    return ResponseEntity.badRequest().body(error);
-  }
 }
@@ -1,21 +1,29 @@
 package com.thoughtworks.rslist.api;
 
 import com.thoughtworks.rslist.domain.User;
+import com.thoughtworks.rslist.domain.UserCacheStats;
+import com.thoughtworks.rslist.domain.UserDeletion;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.service.UserDeletionService;
+import com.thoughtworks.rslist.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.net.URI;
 
 @RestController
 public class UserController {
   @Autowired UserRepository userRepository;
+  @Autowired UserService userService;
+  @Autowired UserDeletionService userDeletionService;
 
   @PostMapping("/user")
   public void register(@RequestBody @Valid User user) {
@@ -29,9 +37,23 @@ public class UserController {
     userRepository.save(userDto);
   }
 
+  // deletion runs in the background, poll the returned location for its status
   @DeleteMapping("/user/{id}")
-  public ResponseEntity deleteUser(@PathVariable int id) {
-    userRepository.deleteById(id);
-    return ResponseEntity.ok().build();
+  public ResponseEntity<UserDeletion> deleteUser(@PathVariable int id) {
+    return userDeletionService.submit(id)
+        .map(job -> ResponseEntity.accepted().location(URI.create("/user/deletion/" + job.getId())).body(job))
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  @GetMapping("/user/deletion/{id}")
+  public ResponseEntity<UserDeletion> getUserDeletion(@PathVariable String id) {
+    return userDeletionService.find(id)
+        .map(ResponseEntity::ok)
+        .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  @GetMapping("/user/cache")
+  public ResponseEntity<UserCacheStats> getUserCacheStats() {
+    return ResponseEntity.ok(userService.cacheStats());
   }
 }
@@ -1,36 +1,100 @@
 package com.thoughtworks.rslist.api;
 
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteCursor;
+import com.thoughtworks.rslist.domain.VoteRollup;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.dto.VoteRollupDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
 import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
 public class VoteController {
+  // bounds for an open-ended time range, inside what every database can store
+  static final LocalDateTime EARLIEST = LocalDateTime.of(1000, 1, 1, 0, 0);
+  static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
   @Autowired VoteRepository voteRepository;
+  @Autowired VoteRollupRepository voteRollupRepository;
+
+  @Value("${rs.vote.history.max-page-size:100}")
+  int maxPageSize;
 
-  @GetMapping("/voteRecord")
+  @GetMapping(value = "/voteRecord", params = "pageIndex")
   public ResponseEntity<List<Vote>> getVoteRecord(
       @RequestParam int userId, @RequestParam int rsEventId, @RequestParam int pageIndex) {
     Pageable pageable = PageRequest.of(pageIndex - 1, 5);
     return ResponseEntity.ok(
         voteRepository.findAllByUserIdAndRsEventId(userId, rsEventId, pageable).stream()
-            .map(
-                item ->
-                    Vote.builder()
-                        .voteNum(item.getNum())
-                        .userId(item.getUser().getId())
-                        .time(item.getLocalDateTime())
-                        .rsEventId(item.getRsEvent().getId())
-                        .build())
+            .map(this::toVote)
+            .collect(Collectors.toList()));
+  }
+
+  @GetMapping(value = "/voteRecord", params = "!pageIndex")
+  public ResponseEntity<List<Vote>> getVoteRecordAfter(
+      @RequestParam int userId,
+      @RequestParam int rsEventId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size) {
+    if (size < 1 || size > maxPageSize || (from != null && to != null && !from.isBefore(to))) {
+      throw new RequestNotValidException("invalid request param");
+    }
+    // a cursor already sits inside the range, without one start at from
+    VoteCursor start =
+        cursor == null ? new VoteCursor(from == null ? EARLIEST : from, 0) : VoteCursor.decode(cursor);
+    List<VoteDto> page =
+        voteRepository.findPageAfter(userId, rsEventId, start.getTime(), start.getId(),
+            to == null ? LATEST : to, PageRequest.of(0, size));
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (page.size() == size) {
+      response.header(RsController.NEXT_CURSOR_HEADER, VoteCursor.of(page.get(size - 1)).encode());
+    }
+    return response.body(page.stream().map(this::toVote).collect(Collectors.toList()));
+  }
+
+  @GetMapping("/voteRollup")
+  public ResponseEntity<List<VoteRollup>> getVoteRollup(
+      @RequestParam int rsEventId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new RequestNotValidException("invalid request param");
+    }
+    return ResponseEntity.ok(
+        voteRollupRepository
+            .findBetween(rsEventId, from == null ? EARLIEST : VoteRollupDto.bucketOf(from), to == null ? LATEST : to)
+            .stream()
+            .map(item -> VoteRollup.builder()
+                .rsEventId(item.getKey().getRsEventId())
+                .bucket(item.getKey().getBucket())
+                .voteNum(item.getVoteNum())
+                .voteCount(item.getVoteCount())
+                .build())
             .collect(Collectors.toList()));
   }
+
+  private Vote toVote(VoteDto item) {
+    return Vote.builder()
+        .voteNum(item.getNum())
+        .userId(item.getUser().getId())
+        .time(item.getLocalDateTime())
+        .rsEventId(item.getRsEvent().getId())
+        .build();
+  }
 }
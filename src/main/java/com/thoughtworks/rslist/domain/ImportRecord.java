@@ -0,0 +1,24 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+
+// one line of a bulk import, either a user or an rs event
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRecord {
+    // names the user so later lines of the same import can refer to it
+    private String key;
+    @Valid
+    private User user;
+    @Valid
+    private RsEvent rsEvent;
+    // used instead of rsEvent.userId for a user created earlier in the import
+    private String userKey;
+}
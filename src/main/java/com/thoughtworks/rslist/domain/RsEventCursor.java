@@ -0,0 +1,45 @@
+package com.thoughtworks.rslist.domain;
+
+import com.thoughtworks.rslist.dto.RsEventSummary;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Data
+@AllArgsConstructor
+public class RsEventCursor {
+  private int rankNum;
+  private int voteNum;
+  private int id;
+
+  public boolean isInPurchasedSection() {
+    return rankNum > 0;
+  }
+
+  public String encode() {
+    String value = rankNum + "," + voteNum + "," + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static RsEventCursor decode(String cursor) {
+    try {
+      String[] values =
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+      if (values.length != 3) {
+        throw new RequestNotValidException("invalid cursor");
+      }
+      return new RsEventCursor(
+          Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]));
+    } catch (IllegalArgumentException e) {
+      throw new RequestNotValidException("invalid cursor");
+    }
+  }
+
+  public static RsEventCursor of(RsEventSummary rsEventSummary) {
+    return new RsEventCursor(rsEventSummary.getRankNum(), rsEventSummary.getVoteNum(), rsEventSummary.getId());
+  }
+}
@@ -0,0 +1,22 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDeletion {
+    private String id;
+    private int userId;
+    private Status status;
+    private int rsEventCount;
+    private String error;
+
+    public enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+}
@@ -1,5 +1,6 @@
 package com.thoughtworks.rslist.domain;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,12 +9,20 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class Vote {
     private int userId;
     private int rsEventId;
+    // set by the server when it accepts the vote, a client sent time would weigh into hot scores
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private LocalDateTime time;
     private int voteNum;
+
+    // votes count as cast when they arrive, a time set in the service layer is never later than now
+    public LocalDateTime timeOrNow() {
+        LocalDateTime now = LocalDateTime.now();
+        return time == null || time.isAfter(now) ? now : time;
+    }
 }
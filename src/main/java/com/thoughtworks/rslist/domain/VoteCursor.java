@@ -0,0 +1,41 @@
+package com.thoughtworks.rslist.domain;
+
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+@Data
+@AllArgsConstructor
+public class VoteCursor {
+  private LocalDateTime time;
+  private int id;
+
+  public String encode() {
+    String value = time + "," + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static VoteCursor decode(String cursor) {
+    try {
+      String[] values =
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+      if (values.length != 2) {
+        throw new RequestNotValidException("invalid cursor");
+      }
+      return new VoteCursor(LocalDateTime.parse(values[0]), Integer.parseInt(values[1]));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new RequestNotValidException("invalid cursor");
+    }
+  }
+
+  public static VoteCursor of(VoteDto voteDto) {
+    return new VoteCursor(voteDto.getLocalDateTime(), voteDto.getId());
+  }
+}
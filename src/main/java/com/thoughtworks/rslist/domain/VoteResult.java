@@ -0,0 +1,18 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoteResult {
+    private int userId;
+    private int rsEventId;
+    private int voteNum;
+    private boolean success;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoteRollup {
+    private int rsEventId;
+    private LocalDateTime bucket;
+    private int voteNum;
+    private int voteCount;
+}
@@ -0,0 +1,23 @@
+package com.thoughtworks.rslist.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class VoteTicket {
+    private String id;
+    private int userId;
+    private int rsEventId;
+    private int voteNum;
+    private Status status;
+    private String error;
+
+    public enum Status {
+        QUEUED, APPLIED, REJECTED, FAILED
+    }
+}
@@ -6,9 +6,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
 @Entity
@@ -16,16 +23,31 @@ import javax.persistence.Table;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "rsEvent")
+@Table(
+    name = "rsEvent",
+    indexes = @Index(name = "idx_rs_event_rank_vote_id", columnList = "rankNum, negVoteNum, id"))
+@EntityListeners(RsEventDtoListener.class)
 public class RsEventDto {
-  @Id @GeneratedValue private int id;
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rs_event_id")
+  @SequenceGenerator(name = "rs_event_id", sequenceName = "rs_event_id_seq", allocationSize = 1000)
+  private int id;
   private String eventName;
   private String keyword;
   private int voteNum;
+  // always -voteNum: MySQL before 8.0 ignores DESC in an index, so voteNum desc, id asc is served
+  // by an ascending index on negVoteNum, id. Bulk updates of voteNum have to set it too
+  private int negVoteNum;
 
   private int rankNum;
 
   private int amount;
 
-  @ManyToOne private UserDto user;
+  @ManyToOne(fetch = FetchType.LAZY) private UserDto user;
+
+  @PrePersist
+  @PreUpdate
+  void syncNegVoteNum() {
+    negVoteNum = -voteNum;
+  }
 }
@@ -0,0 +1,70 @@
+package com.thoughtworks.rslist.dto;
+
+import com.thoughtworks.rslist.service.RankAuction;
+import com.thoughtworks.rslist.service.RankedEvent;
+import com.thoughtworks.rslist.service.RsEventLeaderboard;
+import com.thoughtworks.rslist.service.RsEventSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// keeps the in-memory indexes in step with every RsEventDto write, whichever path made it;
+// entity callbacks run at flush, so the change is only applied once the transaction commits
+@Component
+public class RsEventDtoListener {
+  @Autowired RsEventLeaderboard rsEventLeaderboard;
+  @Autowired RsEventSearchIndex rsEventSearchIndex;
+  // lazy: the auction needs a repository, which needs the entity manager this listener is part of
+  @Autowired @Lazy RankAuction rankAuction;
+
+  @PostPersist
+  public void onCreate(RsEventDto rsEventDto) {
+    onSave(rsEventDto);
+    evictRank(rsEventDto.getRankNum());
+  }
+
+  @PostUpdate
+  public void onSave(RsEventDto rsEventDto) {
+    // the entity may change again before commit, so apply what it is now
+    RankedEvent rankedEvent = RankedEvent.from(rsEventDto);
+    afterCommit(() -> {
+      rsEventLeaderboard.put(rankedEvent);
+      rsEventSearchIndex.index(rankedEvent);
+    });
+  }
+
+  @PostRemove
+  public void onRemove(RsEventDto rsEventDto) {
+    int id = rsEventDto.getId();
+    afterCommit(() -> {
+      rsEventLeaderboard.remove(id);
+      rsEventSearchIndex.remove(id);
+    });
+    evictRank(rsEventDto.getRankNum());
+  }
+
+  private void evictRank(int rankNum) {
+    if (rankNum > 0) {
+      afterCommit(() -> rankAuction.evict(rankNum));
+    }
+  }
+
+  private void afterCommit(Runnable runnable) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      runnable.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        runnable.run();
+      }
+    });
+  }
+}
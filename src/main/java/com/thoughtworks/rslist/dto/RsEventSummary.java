@@ -0,0 +1,18 @@
+package com.thoughtworks.rslist.dto;
+
+// the columns the list views need, read without loading the user
+public interface RsEventSummary {
+  int getId();
+
+  String getEventName();
+
+  String getKeyword();
+
+  int getVoteNum();
+
+  int getRankNum();
+
+  int getAmount();
+
+  int getUserId();
+}
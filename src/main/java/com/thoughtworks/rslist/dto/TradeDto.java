@@ -15,19 +15,24 @@ import javax.persistence.*;
 @Table(name = "trade")
 public class TradeDto {
 
+    // pooled like the vote ids, the ledger drain saves trades in batches
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trade_id")
+    @SequenceGenerator(name = "trade_id", sequenceName = "trade_id_seq", allocationSize = 1000)
     private int id;
 
     private int amount;
 
     private int rankNum;
 
-    @ManyToOne
+    // position in the trade ledger, 0 for trades saved directly
+    private long ledgerSeq;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserDto user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "rs_event_id")
     private RsEventDto rsEvent;
 }
@@ -6,10 +6,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import java.time.LocalDateTime;
 
@@ -18,13 +22,19 @@ import java.time.LocalDateTime;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "vote")
+@Table(
+    name = "vote",
+    indexes = @Index(name = "idx_vote_user_event_time", columnList = "user_id, rs_event_id, localDateTime, id"))
 public class VoteDto {
-  @Id @GeneratedValue private int id;
+  // pooled, so a batch of inserts does not fetch an id per row and can go out as one JDBC batch
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vote_id")
+  @SequenceGenerator(name = "vote_id", sequenceName = "vote_id_seq", allocationSize = 1000)
+  private int id;
 
   private LocalDateTime localDateTime;
 
   private int num;
-  @ManyToOne @JoinColumn(name = "user_id") private UserDto user;
-  @ManyToOne @JoinColumn(name = "rs_event_id") private RsEventDto rsEvent;
+  @ManyToOne(fetch = FetchType.LAZY) @JoinColumn(name = "user_id") private UserDto user;
+  @ManyToOne(fetch = FetchType.LAZY) @JoinColumn(name = "rs_event_id") private RsEventDto rsEvent;
 }
@@ -0,0 +1,44 @@
+package com.thoughtworks.rslist.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// votes per event per hour, kept up to date by every vote write
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "voteRollup")
+public class VoteRollupDto {
+  @EmbeddedId private Key key;
+
+  private int voteNum;
+
+  private int voteCount;
+
+  public static LocalDateTime bucketOf(LocalDateTime time) {
+    return time.truncatedTo(ChronoUnit.HOURS);
+  }
+
+  @Embeddable
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Key implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int rsEventId;
+    private LocalDateTime bucket;
+  }
+}
@@ -0,0 +1,15 @@
+package com.thoughtworks.rslist.exception;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class GlobalExceptionHandler {
+  @ExceptionHandler(RequestNotValidException.class)
+  public ResponseEntity<Error> handleRequestErrorHandler(RequestNotValidException e) {
+    Error error = new Error();
+    error.setError(e.getMessage());
+    return ResponseEntity.badRequest().body(error);
+  }
+}
@@ -0,0 +1,68 @@
+package com.thoughtworks.rslist.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Latency timers with p50/p99/p999 for every @Service method and repository query, tagged by
+// class and method. A timer's count doubles as the call throughput.
+@Aspect
+@Component
+public class CallTimingAspect {
+  static final String SERVICE_TIMER = "rs.service.calls";
+  static final String REPOSITORY_TIMER = "rs.repository.calls";
+
+  final MeterRegistry meterRegistry;
+
+  // keyed by class as well, inherited repository methods are shared between repositories
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+  public CallTimingAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("@within(org.springframework.stereotype.Service) && execution(public * *(..))")
+  public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(SERVICE_TIMER, joinPoint);
+  }
+
+  // spring data repositories by interface, including the inherited CrudRepository methods
+  @Around("execution(* org.springframework.data.repository.Repository+.*(..))"
+      + " || within(com.thoughtworks.rslist.repository..*)")
+  public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(REPOSITORY_TIMER, joinPoint);
+  }
+
+  private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+    String className = className(joinPoint);
+    String methodName = joinPoint.getSignature().getName();
+    Timer timer = timers.computeIfAbsent(className + "." + methodName, key -> Timer.builder(name)
+        .tag("class", className)
+        .tag("method", methodName)
+        .publishPercentiles(0.5, 0.99, 0.999)
+        .register(meterRegistry));
+    long start = System.nanoTime();
+    try {
+      return joinPoint.proceed();
+    } finally {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // repository proxies report the interface they implement rather than the proxy class
+  private static String className(ProceedingJoinPoint joinPoint) {
+    for (Class<?> candidate : joinPoint.getThis().getClass().getInterfaces()) {
+      if (candidate.getName().startsWith("com.thoughtworks.rslist.repository.")) {
+        return candidate.getSimpleName();
+      }
+    }
+    return joinPoint.getTarget().getClass().getSimpleName();
+  }
+}
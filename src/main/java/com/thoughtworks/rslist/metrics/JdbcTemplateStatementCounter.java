@@ -0,0 +1,22 @@
+package com.thoughtworks.rslist.metrics;
+
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.stereotype.Component;
+
+// JdbcTemplate does not go through Hibernate's statement inspector, so its calls are counted
+// here into the same per-thread count. One call sends one statement or one batch; calls
+// JdbcTemplate makes on itself bypass the proxy and are not counted twice.
+@Aspect
+@Component
+public class JdbcTemplateStatementCounter {
+
+  @Before("execution(public * org.springframework.jdbc.core.JdbcOperations+.query*(..))"
+      + " || execution(public * org.springframework.jdbc.core.JdbcOperations+.update(..))"
+      + " || execution(public * org.springframework.jdbc.core.JdbcOperations+.batchUpdate(..))"
+      + " || execution(public * org.springframework.jdbc.core.JdbcOperations+.execute(..))"
+      + " || execution(public * org.springframework.jdbc.core.JdbcOperations+.call(..))")
+  public void count() {
+    SqlStatementCounter.increment();
+  }
+}
@@ -0,0 +1,42 @@
+package com.thoughtworks.rslist.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// SQL statements issued per request, as a distribution per method and matched URI pattern
+@Component
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+  static final String SUMMARY = "rs.sql.statements";
+
+  final MeterRegistry meterRegistry;
+
+  public SqlStatementCountFilter(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    SqlStatementCounter.reset();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      DistributionSummary.builder(SUMMARY)
+          .tag("method", request.getMethod())
+          .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+          .publishPercentiles(0.5, 0.99, 0.999)
+          .register(meterRegistry)
+          .record(SqlStatementCounter.count());
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.thoughtworks.rslist.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Counts the SQL Hibernate prepares on the current thread. Hibernate creates this class itself
+// (hibernate.session_factory.statement_inspector), so the count lives in a static thread local.
+// Statements sent through JdbcTemplate are added by JdbcTemplateStatementCounter.
+public class SqlStatementCounter implements StatementInspector {
+  private static final long serialVersionUID = 1L;
+
+  private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+  @Override
+  public String inspect(String sql) {
+    increment();
+    return sql;
+  }
+
+  public static void increment() {
+    COUNT.get()[0]++;
+  }
+
+  public static void reset() {
+    COUNT.get()[0] = 0;
+  }
+
+  public static int count() {
+    return COUNT.get()[0];
+  }
+}
@@ -1,17 +1,85 @@
 package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.RsEventDto;
-import org.springframework.data.repository.CrudRepository;
+import com.thoughtworks.rslist.dto.RsEventSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface RsEventRepository extends CrudRepository<RsEventDto, Integer> {
+public interface RsEventRepository extends JpaRepository<RsEventDto, Integer> {
+  int STREAM_FETCH_SIZE = 1000;
+  String SUMMARY = "select e.id as id, e.eventName as eventName, e.keyword as keyword, e.voteNum as voteNum,"
+      + " e.rankNum as rankNum, e.amount as amount, e.user.id as userId from RsEventDto e";
+  String RANKED_ORDER =
+      " order by case when e.rankNum > 0 then 0 else 1 end, e.rankNum asc, e.voteNum desc, e.id asc";
+
+  // the user is lazy, fetch it in the same select for callers that walk it
+  @EntityGraph(attributePaths = "user")
   List<RsEventDto> findAll();
 
+  @Query(SUMMARY)
+  List<RsEventSummary> findAllSummaries();
+
+  @Query(SUMMARY + " where e.user.id = :userId")
+  List<RsEventSummary> findSummariesByUserId(@Param("userId") int userId);
+
+  // one statement, no entity loading and no entity listeners
+  @Modifying
+  @Transactional
+  @Query("delete from RsEventDto e where e.user.id = :userId")
+  int bulkDeleteByUserId(@Param("userId") int userId);
+
   @Transactional
   void deleteAllByUserId(int userId);
 
     Optional<RsEventDto> findByRankNum(int rank);
+
+  @Query("select e.id from RsEventDto e where e.id in :ids")
+  List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+  @Modifying
+  @Transactional
+  @Query("update RsEventDto e set e.voteNum = e.voteNum + :voteNum, e.negVoteNum = e.negVoteNum - :voteNum"
+      + " where e.id = :id")
+  int increaseVoteNum(@Param("id") int id, @Param("voteNum") int voteNum);
+
+  // Seek over the (rankNum, negVoteNum, id) index, pass the pageable for the limit only. Every
+  // column runs ascending, so the index order is the result order and the limit stops the scan.
+  // MySQL 5.5 does not range-scan a row comparison or the nested or alone, the redundant bound
+  // on the leading column is what it seeks on; the or only trims the first few rows.
+  @Query(SUMMARY + " where e.rankNum > 0 and e.rankNum >= :rankNum and (e.rankNum > :rankNum"
+      + " or (e.rankNum = :rankNum and (e.negVoteNum > :negVoteNum"
+      + " or (e.negVoteNum = :negVoteNum and e.id > :id))))"
+      + " order by e.rankNum asc, e.negVoteNum asc, e.id asc")
+  List<RsEventSummary> findPurchasedAfter(@Param("rankNum") int rankNum, @Param("negVoteNum") int negVoteNum,
+                                          @Param("id") int id, Pageable pageable);
+
+  // every event in leaderboard order, row by row: Connector/J streams a forward-only result read
+  // with fetch size Integer.MIN_VALUE. MySQL only, call inside a transaction and close it
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+  @Query(SUMMARY + RANKED_ORDER)
+  Stream<RsEventSummary> streamAllRanked();
+
+  // the same for databases that take a positive fetch size as the cursor batch
+  @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+  @Query(SUMMARY + RANKED_ORDER)
+  Stream<RsEventSummary> streamAllRankedInBatches();
+
+  // rankNum = 0 plus the bound on negVoteNum is a range on the same index
+  @Query(SUMMARY + " where e.rankNum = 0 and e.negVoteNum >= :negVoteNum"
+      + " and (e.negVoteNum > :negVoteNum or e.id > :id)"
+      + " order by e.negVoteNum asc, e.id asc")
+  List<RsEventSummary> findNotPurchasedAfter(@Param("negVoteNum") int negVoteNum, @Param("id") int id,
+                                             Pageable pageable);
 }
@@ -1,8 +1,21 @@
 package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.TradeDto;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface TradeRepository extends CrudRepository<TradeDto, Integer> {
 
+    @Query("select coalesce(max(t.ledgerSeq), 0) from TradeDto t")
+    long findMaxLedgerSeq();
+
+    // trades made by the user or on any of the user's events
+    @Modifying
+    @Transactional
+    @Query("delete from TradeDto t where t.user.id = :userId"
+        + " or t.rsEvent.id in (select e.id from RsEventDto e where e.user.id = :userId)")
+    int bulkDeleteByUserId(@Param("userId") int userId);
 }
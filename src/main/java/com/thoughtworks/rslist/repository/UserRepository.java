@@ -1,12 +1,39 @@
 package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.UserDto;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface UserRepository extends CrudRepository<UserDto, Integer> {
+public interface UserRepository extends JpaRepository<UserDto, Integer> {
 
     List<UserDto> findAll();
 
+    @Query("select u.id from UserDto u where u.id in :ids")
+    List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // holds the row until the surrounding transaction ends, inserts referencing the user wait on it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from UserDto u where u.id = :id")
+    Optional<UserDto> lockById(@Param("id") int id);
+
+    @Modifying
+    @Transactional
+    @Query("delete from UserDto u where u.id = :id")
+    int bulkDeleteById(@Param("id") int id);
+
+    // debits only when the balance covers it, 0 rows means the user is missing or short of votes
+    @Modifying
+    @Transactional
+    @Query("update UserDto u set u.voteNum = u.voteNum - :voteNum where u.id = :id and u.voteNum >= :voteNum")
+    int debitVoteNum(@Param("id") int id, @Param("voteNum") int voteNum);
+
 }
@@ -0,0 +1,83 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.VoteRollupDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// counter updates as JDBC batches, one round trip for any number of rows
+@Repository
+public class VoteJdbcRepository {
+  final JdbcTemplate jdbcTemplate;
+
+  public VoteJdbcRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  // neg_vote_num is the keyset sort column, it moves with vote_num
+  public int[] increaseRsEventVoteNums(Map<Integer, Integer> voteNums) {
+    return jdbcTemplate.batchUpdate(
+        "update rs_event set vote_num = vote_num + ?, neg_vote_num = neg_vote_num - ? where id = ?",
+        voteNums.entrySet().stream()
+            .map(entry -> new Object[] {entry.getValue(), entry.getValue(), entry.getKey()})
+            .collect(Collectors.toList()));
+  }
+
+  public int[] decreaseUserVoteNums(Map<Integer, Integer> voteNums) {
+    return batchUpdate("update user set vote_num = vote_num - ? where id = ?", voteNums);
+  }
+
+  // conditional debit per user, returns the ids whose balance could not cover it
+  public Set<Integer> debitUserVoteNums(Map<Integer, Integer> voteNums) {
+    List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(voteNums.entrySet());
+    int[] counts = jdbcTemplate.batchUpdate(
+        "update user set vote_num = vote_num - ? where id = ? and vote_num >= ?",
+        entries.stream()
+            .map(entry -> new Object[] {entry.getValue(), entry.getKey(), entry.getValue()})
+            .collect(Collectors.toList()));
+    Set<Integer> failed = new HashSet<>();
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] == 0) {
+        failed.add(entries.get(i).getKey());
+      }
+    }
+    return failed;
+  }
+
+  // adds the votes to their hourly buckets, creating missing buckets in the same statement
+  public int[] addVoteRollups(List<Vote> votes) {
+    Map<Integer, Map<LocalDateTime, int[]>> buckets = new TreeMap<>();
+    for (Vote vote : votes) {
+      int[] totals = buckets.computeIfAbsent(vote.getRsEventId(), id -> new TreeMap<>())
+          .computeIfAbsent(VoteRollupDto.bucketOf(vote.getTime()), bucket -> new int[2]);
+      totals[0] += vote.getVoteNum();
+      totals[1]++;
+    }
+    List<Object[]> args = new ArrayList<>();
+    buckets.forEach((rsEventId, byBucket) -> byBucket.forEach((bucket, totals) ->
+        args.add(new Object[] {rsEventId, Timestamp.valueOf(bucket), totals[0], totals[1]})));
+    return jdbcTemplate.batchUpdate(
+        "insert into vote_rollup (rs_event_id, bucket, vote_num, vote_count) values (?, ?, ?, ?)"
+            + " on duplicate key update vote_num = vote_num + values(vote_num),"
+            + " vote_count = vote_count + values(vote_count)",
+        args);
+  }
+
+  private int[] batchUpdate(String sql, Map<Integer, Integer> voteNums) {
+    List<Object[]> args =
+        voteNums.entrySet().stream()
+            .map(entry -> new Object[] {entry.getValue(), entry.getKey()})
+            .collect(Collectors.toList());
+    return jdbcTemplate.batchUpdate(sql, args);
+  }
+}
@@ -2,11 +2,32 @@ package com.thoughtworks.rslist.repository;
 
 import com.thoughtworks.rslist.dto.VoteDto;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface VoteRepository extends PagingAndSortingRepository<VoteDto, Integer> {
     List<VoteDto> findAll();
     List<VoteDto> findAllByUserIdAndRsEventId(int userId, int rsEventId, Pageable pageable);
+
+    // votes cast by the user or on any of the user's events
+    @Modifying
+    @Transactional
+    @Query("delete from VoteDto v where v.user.id = :userId"
+        + " or v.rsEvent.id in (select e.id from RsEventDto e where e.user.id = :userId)")
+    int bulkDeleteByUserId(@Param("userId") int userId);
+
+    // range scan on (user_id, rs_event_id, localDateTime, id) starting just after the cursor,
+    // pass the pageable for the limit only
+    @Query("select v from VoteDto v where v.user.id = :userId and v.rsEvent.id = :rsEventId"
+        + " and (v.localDateTime > :time or (v.localDateTime = :time and v.id > :id)) and v.localDateTime < :to"
+        + " order by v.localDateTime asc, v.id asc")
+    List<VoteDto> findPageAfter(@Param("userId") int userId, @Param("rsEventId") int rsEventId,
+                                @Param("time") LocalDateTime time, @Param("id") int id,
+                                @Param("to") LocalDateTime to, Pageable pageable);
 }
@@ -0,0 +1,26 @@
+package com.thoughtworks.rslist.repository;
+
+import com.thoughtworks.rslist.dto.VoteRollupDto;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface VoteRollupRepository extends CrudRepository<VoteRollupDto, VoteRollupDto.Key> {
+  List<VoteRollupDto> findAll();
+
+  @Modifying
+  @Transactional
+  @Query("delete from VoteRollupDto r where r.key.rsEventId in (select e.id from RsEventDto e where e.user.id = :userId)")
+  int bulkDeleteByUserId(@Param("userId") int userId);
+
+  // a primary key range scan, the key is (rsEventId, bucket)
+  @Query("select r from VoteRollupDto r where r.key.rsEventId = :rsEventId"
+      + " and r.key.bucket >= :from and r.key.bucket < :to order by r.key.bucket asc")
+  List<VoteRollupDto> findBetween(@Param("rsEventId") int rsEventId, @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+}
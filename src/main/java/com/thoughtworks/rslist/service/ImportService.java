@@ -0,0 +1,216 @@
+package com.thoughtworks.rslist.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.domain.ImportRecord;
+import com.thoughtworks.rslist.domain.ImportResult;
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.domain.User;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Reads JSON lines of users and events and writes them a batch per transaction, so the
+// inserts go out as JDBC batches and the persistence context never grows past one batch.
+@Service
+public class ImportService {
+  static final int MAX_ERRORS = 100;
+
+  final UserRepository userRepository;
+  final RsEventRepository rsEventRepository;
+  final Validator validator;
+  final ObjectMapper objectMapper;
+  final TransactionTemplate transactionTemplate;
+
+  private final int batchSize;
+
+  public ImportService(
+      UserRepository userRepository,
+      RsEventRepository rsEventRepository,
+      Validator validator,
+      ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager,
+      @Value("${rs.import.batch-size:1000}") int batchSize) {
+    this.userRepository = userRepository;
+    this.rsEventRepository = rsEventRepository;
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.batchSize = batchSize;
+  }
+
+  public ImportResult importRecords(InputStream inputStream) throws IOException {
+    Batch batch = new Batch();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        batch.add(lineNumber, line);
+        if (batch.users.size() + batch.rsEvents.size() >= batchSize) {
+          batch.flush();
+        }
+      }
+    }
+    batch.flush();
+    return ImportResult.builder()
+        .userCount(batch.userCount)
+        .rsEventCount(batch.rsEventCount)
+        .errors(batch.errors)
+        .build();
+  }
+
+  private class Batch {
+    // import key -> user id, null until the user's batch is written
+    final Map<String, Integer> userIds = new HashMap<>();
+    final List<PendingUser> users = new ArrayList<>();
+    final List<PendingRsEvent> rsEvents = new ArrayList<>();
+    final List<String> errors = new ArrayList<>();
+    int userCount;
+    int rsEventCount;
+
+    void add(int lineNumber, String line) {
+      ImportRecord record;
+      try {
+        record = objectMapper.readValue(line, ImportRecord.class);
+      } catch (JsonProcessingException e) {
+        error(lineNumber, "invalid json");
+        return;
+      }
+      if ((record.getUser() == null) == (record.getRsEvent() == null)) {
+        error(lineNumber, "expected one of user or rsEvent");
+        return;
+      }
+      Set<ConstraintViolation<ImportRecord>> violations = validator.validate(record);
+      if (!violations.isEmpty()) {
+        error(lineNumber, violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", ")));
+        return;
+      }
+      if (record.getUser() != null) {
+        if (record.getKey() != null && userIds.containsKey(record.getKey())) {
+          error(lineNumber, "duplicate user key " + record.getKey());
+          return;
+        }
+        users.add(new PendingUser(record.getKey(), record.getUser()));
+        if (record.getKey() != null) {
+          userIds.put(record.getKey(), null);
+        }
+      } else {
+        if (record.getUserKey() != null && !userIds.containsKey(record.getUserKey())) {
+          error(lineNumber, "unknown user key " + record.getUserKey());
+          return;
+        }
+        rsEvents.add(new PendingRsEvent(lineNumber, record.getUserKey(), record.getRsEvent()));
+      }
+    }
+
+    void flush() {
+      if (users.isEmpty() && rsEvents.isEmpty()) {
+        return;
+      }
+      transactionTemplate.execute(status -> {
+        List<UserDto> userDtos = users.stream().map(pending -> toUserDto(pending.user)).collect(Collectors.toList());
+        userRepository.saveAll(userDtos);
+        for (int i = 0; i < users.size(); i++) {
+          if (users.get(i).key != null) {
+            userIds.put(users.get(i).key, userDtos.get(i).getId());
+          }
+        }
+        userCount += userDtos.size();
+
+        Set<Integer> referencedUserIds = rsEvents.stream()
+            .filter(pending -> pending.userKey == null)
+            .map(pending -> pending.rsEvent.getUserId())
+            .collect(Collectors.toSet());
+        Set<Integer> existingUserIds = referencedUserIds.isEmpty()
+            ? referencedUserIds
+            : new HashSet<>(userRepository.findIdsByIdIn(referencedUserIds));
+        List<RsEventDto> rsEventDtos = new ArrayList<>(rsEvents.size());
+        for (PendingRsEvent pending : rsEvents) {
+          Integer userId = pending.userKey == null ? pending.rsEvent.getUserId() : userIds.get(pending.userKey);
+          if (pending.userKey == null && !existingUserIds.contains(userId)) {
+            error(pending.lineNumber, "user not exist");
+            continue;
+          }
+          rsEventDtos.add(RsEventDto.builder()
+              .eventName(pending.rsEvent.getEventName())
+              .keyword(pending.rsEvent.getKeyword())
+              .voteNum(pending.rsEvent.getVoteNum())
+              .user(userRepository.getOne(userId))
+              .build());
+        }
+        rsEventRepository.saveAll(rsEventDtos);
+        rsEventCount += rsEventDtos.size();
+        return null;
+      });
+      users.clear();
+      rsEvents.clear();
+    }
+
+    void error(int lineNumber, String message) {
+      if (errors.size() < MAX_ERRORS) {
+        errors.add("line " + lineNumber + ": " + message);
+      }
+    }
+  }
+
+  private static UserDto toUserDto(User user) {
+    UserDto userDto = new UserDto();
+    userDto.setGender(user.getGender());
+    userDto.setPhone(user.getPhone());
+    userDto.setVoteNum(user.getVoteNum());
+    userDto.setAge(user.getAge());
+    userDto.setEmail(user.getEmail());
+    userDto.setUserName(user.getUserName());
+    return userDto;
+  }
+
+  private static class PendingUser {
+    final String key;
+    final User user;
+
+    PendingUser(String key, User user) {
+      this.key = key;
+      this.user = user;
+    }
+  }
+
+  private static class PendingRsEvent {
+    final int lineNumber;
+    final String userKey;
+    final RsEvent rsEvent;
+
+    PendingRsEvent(int lineNumber, String userKey, RsEvent rsEvent) {
+      this.lineNumber = lineNumber;
+      this.userKey = userKey;
+      this.rsEvent = rsEvent;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Component
+public class LeaderboardLoader {
+  final RsEventRepository rsEventRepository;
+  final VoteRollupRepository voteRollupRepository;
+  final RsEventLeaderboard rsEventLeaderboard;
+  final RsEventSearchIndex rsEventSearchIndex;
+
+  public LeaderboardLoader(RsEventRepository rsEventRepository, VoteRollupRepository voteRollupRepository,
+                           RsEventLeaderboard rsEventLeaderboard, RsEventSearchIndex rsEventSearchIndex) {
+    this.rsEventRepository = rsEventRepository;
+    this.voteRollupRepository = voteRollupRepository;
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.rsEventSearchIndex = rsEventSearchIndex;
+  }
+
+  @PostConstruct
+  public void load() {
+    // hot scores come back from the hourly rollups, each bucket counted at its middle
+    Map<Integer, Double> hotScores = new HashMap<>();
+    voteRollupRepository.findAll().forEach(rollup -> hotScores.merge(
+        rollup.getKey().getRsEventId(),
+        rsEventLeaderboard.hotScore(rollup.getVoteNum(), rollup.getKey().getBucket().plusMinutes(30)),
+        RsEventLeaderboard::combine));
+    List<RankedEvent> rankedEvents =
+        rsEventRepository.findAllSummaries().stream().map(RankedEvent::from).collect(Collectors.toList());
+    rsEventLeaderboard.reload(rankedEvents, hotScores);
+    rsEventSearchIndex.reload(rankedEvents);
+  }
+}
@@ -0,0 +1,123 @@
+package com.thoughtworks.rslist.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.domain.RsEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// The rank ordered /rs/list rendered to JSON once per leaderboard version: the whole list and the
+// first pages up to each configured end. A snapshot is immutable and swapped in whole, and only
+// served while its version is current; a stale read schedules one rebuild and is answered live.
+@Component
+public class LeaderboardSnapshotPublisher {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LeaderboardSnapshotPublisher.class);
+
+  final RsEventLeaderboard rsEventLeaderboard;
+  final ObjectMapper objectMapper;
+
+  private final boolean enabled;
+  private final List<Integer> pageEnds;
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "leaderboard-snapshot");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public LeaderboardSnapshotPublisher(
+      RsEventLeaderboard rsEventLeaderboard,
+      ObjectMapper objectMapper,
+      @Value("${rs.list.snapshot.enabled:true}") boolean enabled,
+      @Value("${rs.list.snapshot.page-ends:10,20,50}") List<Integer> pageEnds) {
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.pageEnds = pageEnds;
+  }
+
+  public Optional<byte[]> findAll(String version) {
+    return current(version).map(current -> current.all);
+  }
+
+  // only positions start = 1 up to a configured end are rendered
+  public Optional<byte[]> findRange(String version, int start, int end) {
+    if (start != 1) {
+      return Optional.empty();
+    }
+    return current(version).map(current -> current.pages.get(end));
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  void rebuild() {
+    // version first: a snapshot may be tagged older than its rankings, never newer
+    String version = rsEventLeaderboard.version();
+    List<RsEvent> rsEvents =
+        rsEventLeaderboard.all().stream().map(RankedEvent::toRsEvent).collect(Collectors.toList());
+    try {
+      Map<Integer, byte[]> pages = new HashMap<>();
+      for (int end : pageEnds) {
+        pages.put(end, objectMapper.writeValueAsBytes(rsEvents.subList(0, Math.min(end, rsEvents.size()))));
+      }
+      snapshot.set(new Snapshot(version, objectMapper.writeValueAsBytes(rsEvents), pages));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("could not render the leaderboard", e);
+    }
+  }
+
+  private Optional<Snapshot> current(String version) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    Snapshot current = snapshot.get();
+    if (current != null && current.version.equals(version)) {
+      return Optional.of(current);
+    }
+    if (rebuilding.compareAndSet(false, true)) {
+      executor.execute(this::rebuildQuietly);
+    }
+    return Optional.empty();
+  }
+
+  private void rebuildQuietly() {
+    try {
+      rebuild();
+    } catch (RuntimeException e) {
+      LOGGER.error("leaderboard snapshot rebuild failed", e);
+    } finally {
+      rebuilding.set(false);
+    }
+  }
+
+  private static class Snapshot {
+    final String version;
+    final byte[] all;
+    final Map<Integer, byte[]> pages;
+
+    Snapshot(String version, byte[] all, Map<Integer, byte[]> pages) {
+      this.version = version;
+      this.all = all;
+      this.pages = pages;
+    }
+  }
+}
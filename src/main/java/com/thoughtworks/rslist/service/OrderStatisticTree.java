@@ -0,0 +1,178 @@
+package com.thoughtworks.rslist.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Treap keeping subtree sizes so that positional reads are O(log n) and a slice
+// of k elements costs O(log n + k). Not thread safe, callers guard it.
+class OrderStatisticTree<T> {
+  private final Comparator<? super T> comparator;
+  private Node<T> root;
+
+  OrderStatisticTree(Comparator<? super T> comparator) {
+    this.comparator = comparator;
+  }
+
+  int size() {
+    return size(root);
+  }
+
+  void clear() {
+    root = null;
+  }
+
+  void add(T value) {
+    root = insert(root, value);
+  }
+
+  boolean remove(T value) {
+    int before = size(root);
+    root = delete(root, value);
+    return size(root) < before;
+  }
+
+  T get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+    }
+    Node<T> node = root;
+    while (true) {
+      int leftSize = size(node.left);
+      if (index < leftSize) {
+        node = node.left;
+      } else if (index == leftSize) {
+        return node.value;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+  }
+
+  List<T> subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException(
+          "fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size());
+    }
+    List<T> result = new ArrayList<>(toIndex - fromIndex);
+    Deque<Node<T>> path = new ArrayDeque<>();
+    Node<T> node = root;
+    int index = fromIndex;
+    while (node != null) {
+      int leftSize = size(node.left);
+      if (index < leftSize) {
+        path.push(node);
+        node = node.left;
+      } else if (index == leftSize) {
+        path.push(node);
+        break;
+      } else {
+        index -= leftSize + 1;
+        node = node.right;
+      }
+    }
+    while (result.size() < toIndex - fromIndex) {
+      Node<T> current = path.pop();
+      result.add(current.value);
+      for (Node<T> next = current.right; next != null; next = next.left) {
+        path.push(next);
+      }
+    }
+    return result;
+  }
+
+  private Node<T> insert(Node<T> node, T value) {
+    if (node == null) {
+      return new Node<>(value);
+    }
+    if (comparator.compare(value, node.value) < 0) {
+      node.left = insert(node.left, value);
+      if (node.left.priority > node.priority) {
+        return rotateRight(node);
+      }
+    } else {
+      node.right = insert(node.right, value);
+      if (node.right.priority > node.priority) {
+        return rotateLeft(node);
+      }
+    }
+    node.update();
+    return node;
+  }
+
+  private Node<T> delete(Node<T> node, T value) {
+    if (node == null) {
+      return null;
+    }
+    int cmp = comparator.compare(value, node.value);
+    if (cmp == 0) {
+      return merge(node.left, node.right);
+    }
+    if (cmp < 0) {
+      node.left = delete(node.left, value);
+    } else {
+      node.right = delete(node.right, value);
+    }
+    node.update();
+    return node;
+  }
+
+  private Node<T> merge(Node<T> left, Node<T> right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+    if (left.priority > right.priority) {
+      left.right = merge(left.right, right);
+      left.update();
+      return left;
+    }
+    right.left = merge(left, right.left);
+    right.update();
+    return right;
+  }
+
+  private Node<T> rotateRight(Node<T> node) {
+    Node<T> left = node.left;
+    node.left = left.right;
+    left.right = node;
+    node.update();
+    left.update();
+    return left;
+  }
+
+  private Node<T> rotateLeft(Node<T> node) {
+    Node<T> right = node.right;
+    node.right = right.left;
+    right.left = node;
+    node.update();
+    right.update();
+    return right;
+  }
+
+  private static int size(Node<?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static class Node<T> {
+    final T value;
+    final int priority = ThreadLocalRandom.current().nextInt();
+    Node<T> left;
+    Node<T> right;
+    int size = 1;
+
+    Node(T value) {
+      this.value = value;
+    }
+
+    void update() {
+      size = 1 + size(left) + size(right);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Highest bid per rank slot, raised with a CAS so competing buyers never wait on each other
+// or on the database to learn whether they won. Only the latest winner of a slot is written.
+@Component
+public class RankAuction {
+  final RsEventRepository rsEventRepository;
+
+  private final Map<Integer, Slot> slots = new ConcurrentHashMap<>();
+
+  public RankAuction(RsEventRepository rsEventRepository) {
+    this.rsEventRepository = rsEventRepository;
+  }
+
+  public Optional<Bid> bid(int rank, int amount, RsEvent rsEvent, UserDto user) {
+    Slot slot = slot(rank);
+    if (slot == null) {
+      return Optional.empty();
+    }
+    Bid current;
+    Bid next;
+    do {
+      current = slot.highest.get();
+      if (current.getAmount() > amount) {
+        return Optional.empty();
+      }
+      next = new Bid(rank, current.getRsEventId(), amount, current.getSequence() + 1, rsEvent, user, slot);
+    } while (!slot.highest.compareAndSet(current, next));
+    return Optional.of(next);
+  }
+
+  // true when the bid is the one written for its slot, false when a higher bid overtook it first
+  public boolean settle(Bid bid, Consumer<Bid> writer) {
+    Slot slot = bid.slot;
+    synchronized (slot) {
+      if (slots.get(bid.getRank()) != slot) {
+        return bid.written;
+      }
+      if (slot.persistedSequence < bid.getSequence()) {
+        Bid latest = slot.highest.get();
+        try {
+          writer.accept(latest);
+        } catch (RuntimeException e) {
+          slots.remove(bid.getRank(), slot);
+          throw e;
+        }
+        slot.persistedSequence = latest.getSequence();
+        latest.written = true;
+      }
+      return bid.written;
+    }
+  }
+
+  public void evict(int rank) {
+    slots.remove(rank);
+  }
+
+  private Slot slot(int rank) {
+    return slots.computeIfAbsent(
+        rank,
+        key -> rsEventRepository.findByRankNum(key)
+            .map(rsEventDto -> new Slot(new Bid(key, rsEventDto.getId(), rsEventDto.getAmount(), 0, null, null, null)))
+            .orElse(null));
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Bid {
+    private final int rank;
+    private final int rsEventId;
+    private final int amount;
+    private final long sequence;
+    private final RsEvent rsEvent;
+    private final UserDto user;
+    @Getter(AccessLevel.NONE)
+    private final Slot slot;
+    // guarded by the slot monitor
+    private boolean written;
+  }
+
+  private static class Slot {
+    final AtomicReference<Bid> highest;
+    long persistedSequence;
+
+    Slot(Bid seed) {
+      this.highest = new AtomicReference<>(seed);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.RsEventSummary;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Comparator;
+
+@Value
+@Builder(toBuilder = true)
+public class RankedEvent {
+  // purchased slots first by rank, then the rest by votes, oldest first on ties
+  public static final Comparator<RankedEvent> RANKING =
+      Comparator.comparing((RankedEvent event) -> !event.isPurchased())
+          .thenComparingInt(RankedEvent::getRankNum)
+          .thenComparing(Comparator.comparingInt(RankedEvent::getVoteNum).reversed())
+          .thenComparingInt(RankedEvent::getId);
+
+  int id;
+  String eventName;
+  String keyword;
+  int voteNum;
+  int rankNum;
+  int amount;
+  int userId;
+
+  public boolean isPurchased() {
+    return rankNum > 0;
+  }
+
+  public RsEvent toRsEvent() {
+    return RsEvent.builder()
+        .eventName(eventName)
+        .keyword(keyword)
+        .userId(userId)
+        .voteNum(voteNum)
+        .amount(amount)
+        .rank(rankNum)
+        .build();
+  }
+
+  public static RankedEvent from(RsEventDto rsEventDto) {
+    return RankedEvent.builder()
+        .id(rsEventDto.getId())
+        .eventName(rsEventDto.getEventName())
+        .keyword(rsEventDto.getKeyword())
+        .voteNum(rsEventDto.getVoteNum())
+        .rankNum(rsEventDto.getRankNum())
+        .amount(rsEventDto.getAmount())
+        .userId(rsEventDto.getUser() == null ? 0 : rsEventDto.getUser().getId())
+        .build();
+  }
+
+  public static RankedEvent from(RsEventSummary rsEventSummary) {
+    return RankedEvent.builder()
+        .id(rsEventSummary.getId())
+        .eventName(rsEventSummary.getEventName())
+        .keyword(rsEventSummary.getKeyword())
+        .voteNum(rsEventSummary.getVoteNum())
+        .rankNum(rsEventSummary.getRankNum())
+        .amount(rsEventSummary.getAmount())
+        .userId(rsEventSummary.getUserId())
+        .build();
+  }
+}
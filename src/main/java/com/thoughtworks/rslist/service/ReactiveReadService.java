@@ -0,0 +1,88 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteCursor;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Reads for the /reactive endpoints. Leaderboard reads are in memory and complete at once; vote
+// history still comes through blocking JPA, so it runs on its own bounded scheduler instead of a
+// request thread, one keyset page per downstream demand. When every worker is busy and the queue
+// is full the read fails with RejectedExecutionException rather than waiting.
+@Service
+public class ReactiveReadService {
+  final RsEventLeaderboard rsEventLeaderboard;
+  final VoteRepository voteRepository;
+
+  private final Scheduler scheduler;
+  private final int pageSize;
+
+  public ReactiveReadService(
+      RsEventLeaderboard rsEventLeaderboard,
+      VoteRepository voteRepository,
+      @Value("${rs.reactive.read.threads:16}") int threads,
+      @Value("${rs.reactive.read.queue-size:1000}") int queueSize,
+      @Value("${rs.reactive.read.page-size:100}") int pageSize) {
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.voteRepository = voteRepository;
+    this.scheduler = Schedulers.newBoundedElastic(threads, queueSize, "reactive-read", 60, true);
+    this.pageSize = pageSize;
+  }
+
+  // positions as on /rs/list, all of them when start or end is missing
+  public Mono<List<RankedEvent>> findRsEvents(Integer start, Integer end) {
+    return Mono.fromSupplier(() ->
+        start == null || end == null ? rsEventLeaderboard.all() : rsEventLeaderboard.range(start, end));
+  }
+
+  public Mono<RankedEvent> findRsEvent(int position) {
+    return Mono.fromSupplier(() -> rsEventLeaderboard.get(position)).flatMap(Mono::justOrEmpty);
+  }
+
+  // every vote of the user on the event in [from, to), oldest first
+  public Flux<Vote> findVotes(int userId, int rsEventId, LocalDateTime from, LocalDateTime to) {
+    return Flux.<List<VoteDto>, VoteCursor>generate(
+        () -> new VoteCursor(from, 0),
+        (cursor, sink) -> {
+          List<VoteDto> page = voteRepository.findPageAfter(userId, rsEventId, cursor.getTime(), cursor.getId(),
+              to, PageRequest.of(0, pageSize));
+          if (!page.isEmpty()) {
+            sink.next(page);
+          }
+          if (page.size() < pageSize) {
+            sink.complete();
+            return cursor;
+          }
+          return VoteCursor.of(page.get(page.size() - 1));
+        })
+        // one page in flight, the next is read only once this one is consumed
+        .concatMapIterable(page -> page, 1)
+        .map(ReactiveReadService::toVote)
+        .subscribeOn(scheduler);
+  }
+
+  @PreDestroy
+  public void stop() {
+    scheduler.dispose();
+  }
+
+  private static Vote toVote(VoteDto voteDto) {
+    return Vote.builder()
+        .voteNum(voteDto.getNum())
+        .userId(voteDto.getUser().getId())
+        .time(voteDto.getLocalDateTime())
+        .rsEventId(voteDto.getRsEvent().getId())
+        .build();
+  }
+}
@@ -0,0 +1,64 @@
+package com.thoughtworks.rslist.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.dto.RsEventSummary;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes every event to the response while the cursor is read, so a full dump needs memory
+// for one fetch of rows rather than for the whole table.
+@Service
+public class RsEventExporter {
+  final RsEventRepository rsEventRepository;
+  final ObjectMapper objectMapper;
+  final TransactionTemplate transactionTemplate;
+
+  // MySQL only streams rows to the fetch size hint Integer.MIN_VALUE, which other drivers reject
+  private final boolean mysql;
+
+  public RsEventExporter(RsEventRepository rsEventRepository, ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${spring.datasource.url:}") String datasourceUrl) {
+    this.rsEventRepository = rsEventRepository;
+    this.objectMapper = objectMapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+    this.mysql = DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.MYSQL;
+  }
+
+  public void writeRanked(OutputStream outputStream) throws IOException {
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.writeStartArray();
+      transactionTemplate.execute(status -> {
+        // projections are not managed, so nothing piles up in the persistence context
+        try (Stream<RsEventSummary> rsEventSummaries = mysql
+            ? rsEventRepository.streamAllRanked()
+            : rsEventRepository.streamAllRankedInBatches()) {
+          Iterator<RankedEvent> rankedEvents = rsEventSummaries.map(RankedEvent::from).iterator();
+          int written = 0;
+          while (rankedEvents.hasNext()) {
+            generator.writeObject(rankedEvents.next().toRsEvent());
+            if (++written % RsEventRepository.STREAM_FETCH_SIZE == 0) {
+              generator.flush();
+            }
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return null;
+      });
+      generator.writeEndArray();
+    }
+  }
+}
@@ -0,0 +1,290 @@
+package com.thoughtworks.rslist.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Besides the main ranking, events are kept in a "hot" order where every vote weighs
+// 2^(-age / half-life). Scores are stored as log(sum of n * e^(lambda * (t - EPOCH))), which only
+// grow, so decay never requires rescoring: it scales every event by the same factor.
+@Component
+public class RsEventLeaderboard {
+  static final double DEFAULT_HALF_LIFE_HOURS = 24;
+  static final LocalDateTime EPOCH = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+  private static final Comparator<HotEntry> HOT =
+      Comparator.comparingDouble((HotEntry entry) -> entry.score).reversed()
+          .thenComparing(Comparator.comparingInt((HotEntry entry) -> entry.id).reversed());
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Integer, RankedEvent> events = new HashMap<>();
+  private final OrderStatisticTree<RankedEvent> ranking =
+      new OrderStatisticTree<>(RankedEvent.RANKING);
+  // the same ranking split by keyword, a tree exists only while the keyword has events
+  private final Map<String, OrderStatisticTree<RankedEvent>> keywordRankings = new HashMap<>();
+  private final Map<Integer, HotEntry> hotEntries = new HashMap<>();
+  private final OrderStatisticTree<HotEntry> hotRanking = new OrderStatisticTree<>(HOT);
+  // bumped by every change, the start time keeps versions from before a restart from matching
+  private final AtomicLong version = new AtomicLong();
+  private final String instance = Long.toString(System.currentTimeMillis(), 36);
+  // decay rate per second
+  private final double lambda;
+
+  public RsEventLeaderboard() {
+    this(DEFAULT_HALF_LIFE_HOURS);
+  }
+
+  @Autowired
+  public RsEventLeaderboard(@Value("${rs.hot.half-life-hours:24}") double halfLifeHours) {
+    if (halfLifeHours <= 0) {
+      throw new IllegalArgumentException("rs.hot.half-life-hours must be positive");
+    }
+    this.lambda = Math.log(2) / (halfLifeHours * 3600);
+  }
+
+  public void reload(Collection<RankedEvent> rankedEvents) {
+    reload(rankedEvents, Collections.emptyMap());
+  }
+
+  // hotScores as built with hotScore and combine, events without one start cold
+  public void reload(Collection<RankedEvent> rankedEvents, Map<Integer, Double> hotScores) {
+    lock.writeLock().lock();
+    try {
+      events.clear();
+      ranking.clear();
+      keywordRankings.clear();
+      hotEntries.clear();
+      hotRanking.clear();
+      rankedEvents.forEach(this::doPut);
+      hotScores.forEach((id, score) -> {
+        if (events.containsKey(id)) {
+          putHot(new HotEntry(id, score));
+        }
+      });
+      version.incrementAndGet();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void put(RankedEvent rankedEvent) {
+    lock.writeLock().lock();
+    try {
+      doPut(rankedEvent);
+      version.incrementAndGet();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      RankedEvent previous = events.remove(id);
+      if (previous != null) {
+        ranking.remove(previous);
+        removeFromKeyword(previous);
+        hotRanking.remove(hotEntries.remove(id));
+        version.incrementAndGet();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean addVotes(int id, int voteNum, LocalDateTime time) {
+    lock.writeLock().lock();
+    try {
+      RankedEvent previous = events.get(id);
+      if (previous == null) {
+        return false;
+      }
+      doPut(previous.toBuilder().voteNum(previous.getVoteNum() + voteNum).build());
+      if (voteNum > 0) {
+        putHot(new HotEntry(id, combine(hotEntries.get(id).score, hotScore(voteNum, time))));
+      }
+      version.incrementAndGet();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // changes whenever any ranking may have; read it before the data it tags, so a tag is never newer
+  public String version() {
+    return instance + "-" + version.get();
+  }
+
+  public Optional<RankedEvent> find(int id) {
+    lock.readLock().lock();
+    try {
+      return Optional.ofNullable(events.get(id));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ranking.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // position is 1-based as on /rs/{index}, an O(log n) select on the ranking
+  public Optional<RankedEvent> get(int position) {
+    lock.readLock().lock();
+    try {
+      if (position < 1 || position > ranking.size()) {
+        return Optional.empty();
+      }
+      return Optional.of(ranking.get(position - 1));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<RankedEvent> all() {
+    lock.readLock().lock();
+    try {
+      return ranking.subList(0, ranking.size());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // positions are 1-based and inclusive as on /rs/list, an end past the tail is cut to size
+  public List<RankedEvent> range(int start, int end) {
+    lock.readLock().lock();
+    try {
+      int toIndex = Math.min(end, ranking.size());
+      int fromIndex = Math.min(start - 1, toIndex);
+      return ranking.subList(fromIndex, toIndex);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<RankedEvent> keywordAll(String keyword) {
+    lock.readLock().lock();
+    try {
+      OrderStatisticTree<RankedEvent> keywordRanking = keywordRankings.get(keyword);
+      return keywordRanking == null
+          ? Collections.emptyList()
+          : keywordRanking.subList(0, keywordRanking.size());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // same positions as range, counted among the keyword's events only
+  public List<RankedEvent> keywordRange(String keyword, int start, int end) {
+    lock.readLock().lock();
+    try {
+      OrderStatisticTree<RankedEvent> keywordRanking = keywordRankings.get(keyword);
+      if (keywordRanking == null) {
+        return Collections.emptyList();
+      }
+      int toIndex = Math.min(end, keywordRanking.size());
+      int fromIndex = Math.min(start - 1, toIndex);
+      return keywordRanking.subList(fromIndex, toIndex);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<RankedEvent> hotAll() {
+    lock.readLock().lock();
+    try {
+      return toEvents(hotRanking.subList(0, hotRanking.size()));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // same positions as range, in hot order
+  public List<RankedEvent> hotRange(int start, int end) {
+    lock.readLock().lock();
+    try {
+      int toIndex = Math.min(end, hotRanking.size());
+      int fromIndex = Math.min(start - 1, toIndex);
+      return toEvents(hotRanking.subList(fromIndex, toIndex));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // log of the weight voteNum votes cast at time carry, relative to EPOCH
+  public double hotScore(int voteNum, LocalDateTime time) {
+    return Math.log(voteNum) + lambda * Duration.between(EPOCH, time).getSeconds();
+  }
+
+  // log(e^a + e^b) without leaving the log domain
+  public static double combine(double a, double b) {
+    double max = Math.max(a, b);
+    if (max == Double.NEGATIVE_INFINITY) {
+      return max;
+    }
+    return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+  }
+
+  private void doPut(RankedEvent rankedEvent) {
+    RankedEvent previous = events.put(rankedEvent.getId(), rankedEvent);
+    if (previous != null) {
+      ranking.remove(previous);
+      removeFromKeyword(previous);
+    } else {
+      putHot(new HotEntry(rankedEvent.getId(), Double.NEGATIVE_INFINITY));
+    }
+    ranking.add(rankedEvent);
+    keywordRankings.computeIfAbsent(rankedEvent.getKeyword(), keyword -> new OrderStatisticTree<>(RankedEvent.RANKING))
+        .add(rankedEvent);
+  }
+
+  // a buy may move the event to another keyword, so always remove the previous version
+  private void removeFromKeyword(RankedEvent rankedEvent) {
+    OrderStatisticTree<RankedEvent> keywordRanking = keywordRankings.get(rankedEvent.getKeyword());
+    keywordRanking.remove(rankedEvent);
+    if (keywordRanking.size() == 0) {
+      keywordRankings.remove(rankedEvent.getKeyword());
+    }
+  }
+
+  private void putHot(HotEntry hotEntry) {
+    HotEntry previous = hotEntries.put(hotEntry.id, hotEntry);
+    if (previous != null) {
+      hotRanking.remove(previous);
+    }
+    hotRanking.add(hotEntry);
+  }
+
+  private List<RankedEvent> toEvents(List<HotEntry> hotEntries) {
+    return hotEntries.stream().map(entry -> events.get(entry.id)).collect(Collectors.toList());
+  }
+
+  private static class HotEntry {
+    final int id;
+    final double score;
+
+    HotEntry(int id, double score) {
+      this.id = id;
+      this.score = score;
+    }
+  }
+}
@@ -0,0 +1,335 @@
+package com.thoughtworks.rslist.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over event names and keywords. Terms are kept sorted, so a query term matches
+// every indexed term it is a prefix of with one range read. Words are split on anything that is
+// not a letter or digit; CJK text has no spaces, so every suffix of a CJK run is indexed and a
+// prefix match on them finds the query anywhere in the run. Results come in leaderboard order,
+// so current votes rank them and deleted events drop out. No lock is held for longer than one
+// page of SCAN_PAGE_SIZE events, whatever the query.
+@Component
+public class RsEventSearchIndex {
+  // longer terms and suffixes are cut, longer query terms then match a little more than asked
+  static final int MAX_TERM_LENGTH = 16;
+  // past this many matches for the rarest term, walking the ranking finds the top ones sooner
+  static final int MAX_CANDIDATES = 5000;
+  // ranked events walked before giving up on the ranking, the terms are common but rarely together
+  static final int MAX_SCANNED = 4096;
+  static final int SCAN_PAGE_SIZE = 256;
+
+  private static final Comparator<RankedEvent> WORST_FIRST = RankedEvent.RANKING.reversed();
+
+  final RsEventLeaderboard rsEventLeaderboard;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final NavigableMap<String, Set<Integer>> postings = new TreeMap<>();
+  // what each event was indexed with, to skip unchanged text and to find its postings again
+  private final Map<Integer, Indexed> indexed = new HashMap<>();
+
+  public RsEventSearchIndex(RsEventLeaderboard rsEventLeaderboard) {
+    this.rsEventLeaderboard = rsEventLeaderboard;
+  }
+
+  public void reload(Collection<RankedEvent> rankedEvents) {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      indexed.clear();
+      rankedEvents.forEach(this::doIndex);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void index(RankedEvent rankedEvent) {
+    lock.writeLock().lock();
+    try {
+      doIndex(rankedEvent);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      doRemove(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // every query term has to match, best ranked first as on /rs/list
+  public List<RankedEvent> search(String query, int limit) {
+    Set<String> queryTerms = terms(query, false);
+    if (queryTerms.isEmpty() || limit < 1) {
+      return Collections.emptyList();
+    }
+    List<Integer> candidates;
+    lock.readLock().lock();
+    try {
+      String rarest = null;
+      int rarestCount = Integer.MAX_VALUE;
+      for (String term : queryTerms) {
+        int count = countUpTo(term, MAX_CANDIDATES + 1);
+        if (count < rarestCount) {
+          rarest = term;
+          rarestCount = count;
+        }
+      }
+      if (rarestCount == 0) {
+        return Collections.emptyList();
+      }
+      if (rarestCount > MAX_CANDIDATES) {
+        candidates = null;
+      } else {
+        candidates = new ArrayList<>(rarestCount);
+        for (Set<Integer> ids : prefixed(rarest).values()) {
+          for (Integer id : ids) {
+            if (matchesAll(id, queryTerms)) {
+              candidates.add(id);
+            }
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (candidates != null) {
+      return rank(candidates, limit);
+    }
+    List<RankedEvent> top = scanRanking(queryTerms, limit);
+    return top != null ? top : rank(intersect(queryTerms), limit);
+  }
+
+  int termCount() {
+    lock.readLock().lock();
+    try {
+      return postings.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // few enough matches: rank them all, keeping the best limit in a heap with the worst on top
+  private List<RankedEvent> rank(List<Integer> candidates, int limit) {
+    PriorityQueue<RankedEvent> top = new PriorityQueue<>(limit + 1, WORST_FIRST);
+    for (Integer id : new HashSet<>(candidates)) {
+      rsEventLeaderboard.find(id).ifPresent(rankedEvent -> {
+        top.add(rankedEvent);
+        if (top.size() > limit) {
+          top.poll();
+        }
+      });
+    }
+    List<RankedEvent> result = new ArrayList<>(top);
+    result.sort(RankedEvent.RANKING);
+    return result;
+  }
+
+  // every term is common: walk the ranking from the top, the first limit matches are the answer.
+  // null when MAX_SCANNED events held fewer, the matches are too sparse for the walk to pay off
+  private List<RankedEvent> scanRanking(Set<String> queryTerms, int limit) {
+    List<RankedEvent> result = new ArrayList<>(limit);
+    Set<Integer> seen = new HashSet<>();
+    for (int start = 1; result.size() < limit; start += SCAN_PAGE_SIZE) {
+      if (start > MAX_SCANNED) {
+        return null;
+      }
+      List<RankedEvent> page = rsEventLeaderboard.range(start, start + SCAN_PAGE_SIZE - 1);
+      if (page.isEmpty()) {
+        break;
+      }
+      lock.readLock().lock();
+      try {
+        for (RankedEvent rankedEvent : page) {
+          // a write between pages can shift an event into the next one
+          if (result.size() < limit && matchesAll(rankedEvent.getId(), queryTerms)
+              && seen.add(rankedEvent.getId())) {
+            result.add(rankedEvent);
+          }
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    return result;
+  }
+
+  // sparse matches of common terms: copy the smallest postings, then check the other terms a page
+  // at a time, so writers get the lock between pages
+  private List<Integer> intersect(Set<String> queryTerms) {
+    List<Integer> ids = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      String smallest = null;
+      int smallestCount = Integer.MAX_VALUE;
+      for (String term : queryTerms) {
+        int count = countUpTo(term, smallestCount);
+        if (count < smallestCount) {
+          smallest = term;
+          smallestCount = count;
+        }
+      }
+      if (smallest == null) {
+        return ids;
+      }
+      prefixed(smallest).values().forEach(ids::addAll);
+    } finally {
+      lock.readLock().unlock();
+    }
+    List<Integer> matches = new ArrayList<>();
+    for (int start = 0; start < ids.size(); start += SCAN_PAGE_SIZE) {
+      lock.readLock().lock();
+      try {
+        for (Integer id : ids.subList(start, Math.min(start + SCAN_PAGE_SIZE, ids.size()))) {
+          if (matchesAll(id, queryTerms)) {
+            matches.add(id);
+          }
+        }
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    return matches;
+  }
+
+  private NavigableMap<String, Set<Integer>> prefixed(String term) {
+    return postings.subMap(term, true, term + Character.MAX_VALUE, false);
+  }
+
+  private int countUpTo(String term, int max) {
+    int count = 0;
+    for (Set<Integer> ids : prefixed(term).values()) {
+      count += ids.size();
+      if (count >= max) {
+        break;
+      }
+    }
+    return count;
+  }
+
+  private boolean matchesAll(int id, Set<String> queryTerms) {
+    Indexed event = indexed.get(id);
+    if (event == null) {
+      return false;
+    }
+    for (String queryTerm : queryTerms) {
+      if (event.terms.stream().noneMatch(term -> term.startsWith(queryTerm))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void doIndex(RankedEvent rankedEvent) {
+    Indexed previous = indexed.get(rankedEvent.getId());
+    if (previous != null && previous.matches(rankedEvent)) {
+      return;
+    }
+    doRemove(rankedEvent.getId());
+    Set<String> eventTerms = terms(rankedEvent.getEventName(), true);
+    eventTerms.addAll(terms(rankedEvent.getKeyword(), true));
+    eventTerms.forEach(term -> postings.computeIfAbsent(term, key -> new HashSet<>()).add(rankedEvent.getId()));
+    indexed.put(rankedEvent.getId(), new Indexed(rankedEvent.getEventName(), rankedEvent.getKeyword(), eventTerms));
+  }
+
+  private void doRemove(int id) {
+    Indexed previous = indexed.remove(id);
+    if (previous == null) {
+      return;
+    }
+    for (String term : previous.terms) {
+      Set<Integer> ids = postings.get(term);
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        postings.remove(term);
+      }
+    }
+  }
+
+  // lower-cased words, with suffixes only for the indexed side of CJK runs
+  static Set<String> terms(String text, boolean suffixes) {
+    Set<String> terms = new HashSet<>();
+    if (text == null) {
+      return terms;
+    }
+    String normalized = text.toLowerCase(Locale.ROOT);
+    int start = 0;
+    while (start < normalized.length()) {
+      int codePoint = normalized.codePointAt(start);
+      if (!Character.isLetterOrDigit(codePoint)) {
+        start += Character.charCount(codePoint);
+        continue;
+      }
+      boolean cjk = isCjk(codePoint);
+      int end = start;
+      while (end < normalized.length()) {
+        int next = normalized.codePointAt(end);
+        if (!Character.isLetterOrDigit(next) || isCjk(next) != cjk) {
+          break;
+        }
+        end += Character.charCount(next);
+      }
+      String run = normalized.substring(start, end);
+      if (cjk && suffixes) {
+        for (int offset = 0; offset < run.length(); offset = run.offsetByCodePoints(offset, 1)) {
+          terms.add(truncate(run.substring(offset)));
+        }
+      } else {
+        terms.add(truncate(run));
+      }
+      start = end;
+    }
+    return terms;
+  }
+
+  private static String truncate(String term) {
+    return term.codePointCount(0, term.length()) <= MAX_TERM_LENGTH
+        ? term
+        : term.substring(0, term.offsetByCodePoints(0, MAX_TERM_LENGTH));
+  }
+
+  private static boolean isCjk(int codePoint) {
+    Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+    return script == Character.UnicodeScript.HAN
+        || script == Character.UnicodeScript.HIRAGANA
+        || script == Character.UnicodeScript.KATAKANA
+        || script == Character.UnicodeScript.HANGUL;
+  }
+
+  private static class Indexed {
+    final String eventName;
+    final String keyword;
+    final Set<String> terms;
+
+    Indexed(String eventName, String keyword, Set<String> terms) {
+      this.eventName = eventName;
+      this.keyword = keyword;
+      this.terms = terms;
+    }
+
+    boolean matches(RankedEvent rankedEvent) {
+      return Objects.equals(eventName, rankedEvent.getEventName())
+          && Objects.equals(keyword, rankedEvent.getKeyword());
+    }
+  }
+}
@@ -1,19 +1,40 @@
 package com.thoughtworks.rslist.service;
 
 import com.thoughtworks.rslist.domain.RsEvent;
+import com.thoughtworks.rslist.domain.RsEventCursor;
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
 import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.RsEventSummary;
 import com.thoughtworks.rslist.dto.TradeDto;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteJdbcRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 public class RsService {
@@ -21,61 +42,224 @@ public class RsService {
   final UserRepository userRepository;
   final VoteRepository voteRepository;
   final TradeRepository tradeRepository;
+  final VoteWriteBehindBuffer voteWriteBehindBuffer;
+  final RsEventLeaderboard rsEventLeaderboard;
+  final RankAuction rankAuction;
+  final TradeLedger tradeLedger;
+  final VoteJdbcRepository voteJdbcRepository;
+  final UserService userService;
+  final TransactionTemplate transactionTemplate;
 
-  public RsService(RsEventRepository rsEventRepository, UserRepository userRepository, VoteRepository voteRepository, TradeRepository tradeRepository) {
+  public RsService(RsEventRepository rsEventRepository, UserRepository userRepository, VoteRepository voteRepository, TradeRepository tradeRepository,
+                   VoteWriteBehindBuffer voteWriteBehindBuffer, RsEventLeaderboard rsEventLeaderboard, RankAuction rankAuction,
+                   TradeLedger tradeLedger, VoteJdbcRepository voteJdbcRepository, UserService userService,
+                   PlatformTransactionManager transactionManager) {
     this.rsEventRepository = rsEventRepository;
     this.userRepository = userRepository;
     this.voteRepository = voteRepository;
     this.tradeRepository = tradeRepository;
+    this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.rankAuction = rankAuction;
+    this.tradeLedger = tradeLedger;
+    this.voteJdbcRepository = voteJdbcRepository;
+    this.userService = userService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
   }
 
+  @Transactional
   public void vote(Vote vote, int rsEventId) {
-    Optional<RsEventDto> rsEventDto = rsEventRepository.findById(rsEventId);
-    Optional<UserDto> userDto = userRepository.findById(vote.getUserId());
-    if (!rsEventDto.isPresent()
-        || !userDto.isPresent()
-        || vote.getVoteNum() > userDto.get().getVoteNum()) {
+    if (voteWriteBehindBuffer.isEnabled()) {
+      voteWriteBehindBuffer.vote(vote, rsEventId);
+      return;
+    }
+    int voteNum = vote.getVoteNum();
+    // event row first, then user row, the same lock order as the write-behind flush
+    if (voteNum <= 0
+        || rsEventRepository.increaseVoteNum(rsEventId, voteNum) == 0
+        || userRepository.debitVoteNum(vote.getUserId(), voteNum) == 0) {
       throw new RuntimeException();
     }
+    LocalDateTime time = vote.timeOrNow();
     VoteDto voteDto =
         VoteDto.builder()
-            .localDateTime(vote.getTime())
-            .num(vote.getVoteNum())
-            .rsEvent(rsEventDto.get())
-            .user(userDto.get())
+            .localDateTime(time)
+            .num(voteNum)
+            .rsEvent(rsEventRepository.getOne(rsEventId))
+            .user(userRepository.getOne(vote.getUserId()))
             .build();
     voteRepository.save(voteDto);
-    UserDto user = userDto.get();
-    user.setVoteNum(user.getVoteNum() - vote.getVoteNum());
-    userRepository.save(user);
-    RsEventDto rsEvent = rsEventDto.get();
-    rsEvent.setVoteNum(rsEvent.getVoteNum() + vote.getVoteNum());
-    rsEventRepository.save(rsEvent);
+    voteJdbcRepository.addVoteRollups(Collections.singletonList(
+        Vote.builder().rsEventId(rsEventId).voteNum(voteNum).time(time).build()));
+    afterCommit(() -> {
+      rsEventLeaderboard.addVotes(rsEventId, voteNum, time);
+      userService.evict(vote.getUserId());
+    });
+  }
+
+  // balances and events are read once for the whole batch, counters move in two JDBC batches
+  // and the vote rows go out as one batched insert
+  @Transactional
+  public List<VoteResult> voteAll(List<Vote> votes) {
+    List<VoteResult> results = new ArrayList<>(votes.size());
+    if (votes.isEmpty()) {
+      return results;
+    }
+    if (voteWriteBehindBuffer.isEnabled()) {
+      for (Vote vote : votes) {
+        VoteResult result = VoteResult.builder().userId(vote.getUserId()).rsEventId(vote.getRsEventId())
+            .voteNum(vote.getVoteNum()).success(true).build();
+        try {
+          voteWriteBehindBuffer.vote(vote, vote.getRsEventId());
+        } catch (RuntimeException e) {
+          result.setSuccess(false);
+          result.setError("vote rejected");
+        }
+        results.add(result);
+      }
+      return results;
+    }
+
+    Set<Integer> rsEventIds = new HashSet<>(rsEventRepository.findIdsByIdIn(
+        votes.stream().map(Vote::getRsEventId).collect(Collectors.toSet())));
+    Map<Integer, Integer> balances = new HashMap<>();
+    userRepository.findAllById(votes.stream().map(Vote::getUserId).collect(Collectors.toSet()))
+        .forEach(userDto -> balances.put(userDto.getId(), userDto.getVoteNum()));
+
+    // sorted by id so concurrent batches lock rows in the same order
+    Map<Integer, Integer> rsEventVoteNums = new TreeMap<>();
+    Map<Integer, Integer> userVoteNums = new TreeMap<>();
+    List<Integer> accepted = new ArrayList<>();
+    for (Vote vote : votes) {
+      String error = null;
+      if (vote.getVoteNum() <= 0) {
+        error = "invalid vote num";
+      } else if (!rsEventIds.contains(vote.getRsEventId())) {
+        error = "rs event not exist";
+      } else if (!balances.containsKey(vote.getUserId())) {
+        error = "user not exist";
+      } else if (balances.get(vote.getUserId()) - userVoteNums.getOrDefault(vote.getUserId(), 0) < vote.getVoteNum()) {
+        error = "vote num not enough";
+      }
+      if (error == null) {
+        accepted.add(results.size());
+        rsEventVoteNums.merge(vote.getRsEventId(), vote.getVoteNum(), Integer::sum);
+        userVoteNums.merge(vote.getUserId(), vote.getVoteNum(), Integer::sum);
+      }
+      results.add(VoteResult.builder().userId(vote.getUserId()).rsEventId(vote.getRsEventId())
+          .voteNum(vote.getVoteNum()).success(error == null).error(error).build());
+    }
+    if (accepted.isEmpty()) {
+      return results;
+    }
+
+    // event rows first, then user rows, the same lock order as a single vote
+    voteJdbcRepository.increaseRsEventVoteNums(rsEventVoteNums);
+    Set<Integer> overdrawn = voteJdbcRepository.debitUserVoteNums(userVoteNums);
+    if (!overdrawn.isEmpty()) {
+      // another request spent the balance after it was read, hand back those users' votes
+      Map<Integer, Integer> refunds = new TreeMap<>();
+      accepted.removeIf(index -> {
+        VoteResult result = results.get(index);
+        if (!overdrawn.contains(result.getUserId())) {
+          return false;
+        }
+        result.setSuccess(false);
+        result.setError("vote num not enough");
+        refunds.merge(result.getRsEventId(), -result.getVoteNum(), Integer::sum);
+        return true;
+      });
+      voteJdbcRepository.increaseRsEventVoteNums(refunds);
+    }
+    List<Vote> applied = accepted.stream()
+        .map(votes::get)
+        .map(vote -> vote.toBuilder().time(vote.timeOrNow()).build())
+        .collect(Collectors.toList());
+    voteRepository.saveAll(
+        applied.stream()
+            .map(vote -> VoteDto.builder()
+                .localDateTime(vote.getTime())
+                .num(vote.getVoteNum())
+                .rsEvent(rsEventRepository.getOne(vote.getRsEventId()))
+                .user(userRepository.getOne(vote.getUserId()))
+                .build())
+            .collect(Collectors.toList()));
+    voteJdbcRepository.addVoteRollups(applied);
+    afterCommit(() -> {
+      applied.forEach(vote -> rsEventLeaderboard.addVotes(vote.getRsEventId(), vote.getVoteNum(), vote.getTime()));
+      userService.evictAll(userVoteNums.keySet());
+    });
+    return results;
   }
 
   public ResponseEntity buy(int amount, int rank, RsEvent rsEvent) {
-    Optional<RsEventDto> eventOptional = rsEventRepository.findByRankNum(rank);
-    Optional<UserDto> userOptional = userRepository.findById(rsEvent.getUserId());
-    if (!eventOptional.isPresent() || !userOptional.isPresent()
-                                   || eventOptional.get().getAmount() > amount) {
+    Optional<UserDto> userOptional = userService.findById(rsEvent.getUserId());
+    if (!userOptional.isPresent()) {
+      return ResponseEntity.badRequest().build();
+    }
+    Optional<RankAuction.Bid> bid = rankAuction.bid(rank, amount, rsEvent, userOptional.get());
+    if (!bid.isPresent() || !rankAuction.settle(bid.get(), this::saveWinningBid)) {
       return ResponseEntity.badRequest().build();
-      // throw new RuntimeException();
     }
-    RsEventDto rsEventDto = eventOptional.get();
-    rsEventDto.setRankNum(rank);
-    rsEventDto.setVoteNum(rsEvent.getVoteNum());
-    rsEventDto.setEventName(rsEvent.getEventName());
-    rsEventDto.setKeyword(rsEvent.getKeyword());
-    rsEventDto.setUser(userOptional.get());
-    rsEventDto.setAmount(amount);
-    TradeDto tradeDto = TradeDto.builder().amount(amount).rankNum(rank).rsEvent(rsEventDto)
-            .user(userOptional.get()).build();
-    rsEventRepository.save(rsEventDto);
-    tradeRepository.save(tradeDto);
     return ResponseEntity.ok().build();
   }
 
+  private void saveWinningBid(RankAuction.Bid bid) {
+    RsEventDto rsEventDto = rsEventRepository.findById(bid.getRsEventId()).orElseThrow(RuntimeException::new);
+    rsEventDto.setRankNum(bid.getRank());
+    rsEventDto.setVoteNum(bid.getRsEvent().getVoteNum());
+    rsEventDto.setEventName(bid.getRsEvent().getEventName());
+    rsEventDto.setKeyword(bid.getRsEvent().getKeyword());
+    rsEventDto.setUser(bid.getUser());
+    rsEventDto.setAmount(bid.getAmount());
+    TradeDto tradeDto = TradeDto.builder().amount(bid.getAmount()).rankNum(bid.getRank()).rsEvent(rsEventDto)
+            .user(bid.getUser()).build();
+    if (tradeLedger.isEnabled()) {
+      // the event only changes hands once its trade is fsynced, a failed append leaves it untouched
+      tradeLedger.append(tradeDto);
+      rsEventRepository.save(rsEventDto);
+    } else {
+      transactionTemplate.execute(status -> {
+        rsEventRepository.save(rsEventDto);
+        return tradeRepository.save(tradeDto);
+      });
+    }
+  }
+
+  // keyset page in leaderboard order, purchased slots first; a null cursor reads the first page
+  public List<RsEventSummary> findRsEventsAfter(RsEventCursor cursor, int size) {
+    List<RsEventSummary> page = new ArrayList<>(size);
+    if (cursor == null || cursor.isInPurchasedSection()) {
+      page.addAll(
+          cursor == null
+              ? rsEventRepository.findPurchasedAfter(0, 0, 0, PageRequest.of(0, size))
+              : rsEventRepository.findPurchasedAfter(
+                  cursor.getRankNum(), -cursor.getVoteNum(), cursor.getId(), PageRequest.of(0, size)));
+    }
+    if (page.size() < size) {
+      Pageable rest = PageRequest.of(0, size - page.size());
+      page.addAll(
+          cursor == null || cursor.isInPurchasedSection()
+              ? rsEventRepository.findNotPurchasedAfter(-Integer.MAX_VALUE, 0, rest)
+              : rsEventRepository.findNotPurchasedAfter(-cursor.getVoteNum(), cursor.getId(), rest));
+    }
+    return page;
+  }
+
   public Optional<RsEventDto> findByRankNum(int rank) {
     return rsEventRepository.findByRankNum(rank);
   }
+
+  private void afterCommit(Runnable runnable) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      runnable.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        runnable.run();
+      }
+    });
+  }
 }
@@ -0,0 +1,445 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.dto.TradeDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Optional append-only log for trades. A buy returns once its line is fsynced, appends that
+// arrive together share one fsync, and a background task copies the log into the trade table
+// in order. Rows carry their ledger sequence, so on restart anything above the highest
+// sequence already in the table is replayed. Once a drain has copied everything the log is
+// truncated, and when it grows past compact-bytes anyway it is rewritten with only the
+// entries still waiting.
+@Component
+public class TradeLedger {
+  static final long APPEND_TIMEOUT_SECONDS = 30;
+  static final int MAX_DEAD_LETTERS = 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TradeLedger.class);
+
+  final TradeRepository tradeRepository;
+  final UserRepository userRepository;
+  final RsEventRepository rsEventRepository;
+  final TransactionTemplate transactionTemplate;
+
+  private final boolean enabled;
+  private final Path path;
+  private final long drainIntervalMs;
+  private final int batchSize;
+  private final long compactBytes;
+
+  private final BlockingQueue<PendingAppend> appends = new LinkedBlockingQueue<>();
+  private final ConcurrentLinkedDeque<Entry> undrained = new ConcurrentLinkedDeque<>();
+  // trades whose user or event was gone by the time they were drained, kept for inspection
+  private final ConcurrentLinkedDeque<Entry> deadLetters = new ConcurrentLinkedDeque<>();
+  private final ReentrantLock drainLock = new ReentrantLock();
+  // the writer and compaction both change the file, and compaction swaps the channel
+  private final ReentrantLock fileLock = new ReentrantLock();
+  private FileChannel channel;
+  private long nextSequence;
+  // set when a failed write could not be cut back, nothing more can be appended safely
+  private IOException unwritable;
+  private volatile boolean running;
+  private Thread writer;
+  private ScheduledExecutorService drainer;
+
+  public TradeLedger(
+      TradeRepository tradeRepository,
+      UserRepository userRepository,
+      RsEventRepository rsEventRepository,
+      PlatformTransactionManager transactionManager,
+      @Value("${rs.trade.ledger.enabled:false}") boolean enabled,
+      @Value("${rs.trade.ledger.path:trade-ledger.log}") String path,
+      @Value("${rs.trade.ledger.drain-interval-ms:1000}") long drainIntervalMs,
+      @Value("${rs.trade.ledger.batch-size:500}") int batchSize,
+      @Value("${rs.trade.ledger.compact-bytes:67108864}") long compactBytes) {
+    this.tradeRepository = tradeRepository;
+    this.userRepository = userRepository;
+    this.rsEventRepository = rsEventRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.enabled = enabled;
+    this.path = Paths.get(path);
+    this.drainIntervalMs = drainIntervalMs;
+    this.batchSize = batchSize;
+    this.compactBytes = compactBytes;
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    replay();
+    running = true;
+    writer = new Thread(this::writeLoop, "trade-ledger-writer");
+    writer.setDaemon(true);
+    writer.start();
+    drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "trade-ledger-drainer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    drainer.scheduleWithFixedDelay(this::drainQuietly, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException, IOException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    writer.join();
+    drainer.shutdown();
+    drainer.awaitTermination(drainIntervalMs + 10_000, TimeUnit.MILLISECONDS);
+    drainQuietly();
+    channel.close();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // blocks until the trade is durable in the log
+  public void append(TradeDto tradeDto) {
+    PendingAppend pending = new PendingAppend(
+        tradeDto.getAmount(), tradeDto.getRankNum(), tradeDto.getUser().getId(), tradeDto.getRsEvent().getId());
+    if (!running) {
+      throw new IllegalStateException("trade ledger is not running");
+    }
+    appends.add(pending);
+    try {
+      pending.durable.get(APPEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while appending a trade", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("could not append a trade", e.getCause());
+    } catch (TimeoutException e) {
+      throw new IllegalStateException("timed out appending a trade", e);
+    }
+  }
+
+  public int undrainedCount() {
+    return undrained.size();
+  }
+
+  List<Entry> deadLetters() {
+    return new ArrayList<>(deadLetters);
+  }
+
+  // trades that could not be saved for a passing reason go back to the head of the queue
+  public void drain() {
+    drainLock.lock();
+    try {
+      List<Entry> batch;
+      while (!(batch = poll()).isEmpty()) {
+        List<Entry> unsaved = new ArrayList<>();
+        RuntimeException failure = saveOrSplit(batch, unsaved);
+        if (failure != null) {
+          for (int i = unsaved.size() - 1; i >= 0; i--) {
+            undrained.addFirst(unsaved.get(i));
+          }
+          throw failure;
+        }
+      }
+      compactQuietly();
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
+  private void drainQuietly() {
+    try {
+      drain();
+    } catch (RuntimeException e) {
+      LOGGER.error("trade ledger drain failed, {} trades kept for retry", undrained.size(), e);
+    }
+  }
+
+  // called with the drain lock held, so every entry no longer in undrained is in the trade table
+  void compact() throws IOException {
+    fileLock.lock();
+    try {
+      if (undrained.isEmpty()) {
+        channel.truncate(0);
+        channel.force(true);
+      } else if (channel.size() >= compactBytes) {
+        rewrite(new ArrayList<>(undrained));
+      }
+    } finally {
+      fileLock.unlock();
+    }
+  }
+
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (IOException e) {
+      LOGGER.warn("trade ledger {} could not be compacted, drained trades stay in it", path, e);
+    }
+  }
+
+  // the rewritten log replaces the old one in a single rename, a crash leaves one or the other
+  private void rewrite(List<Entry> entries) throws IOException {
+    Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+    try (FileChannel out = FileChannel.open(compacted,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.wrap(format(entries).getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        out.write(buffer);
+      }
+      out.force(true);
+    }
+    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    channel.close();
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+  }
+
+  private List<Entry> poll() {
+    List<Entry> batch = new ArrayList<>();
+    Entry entry;
+    while (batch.size() < batchSize && (entry = undrained.poll()) != null) {
+      batch.add(entry);
+    }
+    return batch;
+  }
+
+  // As in VoteWriteBehindBuffer: a failed batch is halved until the failing trade is alone. A
+  // trade whose user or event was deleted meanwhile is dead-lettered and the ones after it are
+  // still saved; any other failure is taken as passing and stops the drain.
+  private RuntimeException saveOrSplit(List<Entry> batch, List<Entry> unsaved) {
+    try {
+      save(batch);
+      return null;
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        if (isOrphaned(batch.get(0))) {
+          deadLetter(batch.get(0), e);
+          return null;
+        }
+        unsaved.addAll(batch);
+        return e;
+      }
+      int middle = batch.size() / 2;
+      RuntimeException failure = saveOrSplit(batch.subList(0, middle), unsaved);
+      if (failure != null) {
+        unsaved.addAll(batch.subList(middle, batch.size()));
+        return failure;
+      }
+      return saveOrSplit(batch.subList(middle, batch.size()), unsaved);
+    }
+  }
+
+  private boolean isOrphaned(Entry entry) {
+    try {
+      return !userRepository.existsById(entry.getUserId()) || !rsEventRepository.existsById(entry.getRsEventId());
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  // the entry leaves undrained, so the next compaction drops it from the log as well
+  private void deadLetter(Entry entry, RuntimeException e) {
+    LOGGER.error("dropping ledger trade {} that cannot be saved", entry.format(), e);
+    deadLetters.add(entry);
+    while (deadLetters.size() > MAX_DEAD_LETTERS) {
+      deadLetters.poll();
+    }
+  }
+
+  private void save(List<Entry> batch) {
+    transactionTemplate.execute(status -> tradeRepository.saveAll(
+        batch.stream()
+            .map(entry -> TradeDto.builder()
+                .ledgerSeq(entry.getSequence())
+                .amount(entry.getAmount())
+                .rankNum(entry.getRankNum())
+                .user(userRepository.getOne(entry.getUserId()))
+                .rsEvent(rsEventRepository.getOne(entry.getRsEventId()))
+                .build())
+            .collect(Collectors.toList())));
+  }
+
+  private void writeLoop() {
+    while (running || !appends.isEmpty()) {
+      List<PendingAppend> group = new ArrayList<>();
+      try {
+        PendingAppend first = appends.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        group.add(first);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      appends.drainTo(group, batchSize - 1);
+      // sequences are only used up once the group is durable, a failed group leaves no gap
+      List<Entry> entries = new ArrayList<>(group.size());
+      for (PendingAppend pending : group) {
+        entries.add(new Entry(nextSequence + entries.size(),
+            pending.amount, pending.rankNum, pending.userId, pending.rsEventId));
+      }
+      try {
+        append(entries);
+      } catch (IOException e) {
+        group.forEach(pending -> pending.durable.completeExceptionally(e));
+        continue;
+      }
+      nextSequence += entries.size();
+      group.forEach(pending -> pending.durable.complete(null));
+    }
+  }
+
+  // either the whole group is in the log and fsynced or the log is cut back to where it was,
+  // so a failed group never leaves lines behind that a later group would land after
+  private void append(List<Entry> entries) throws IOException {
+    fileLock.lock();
+    try {
+      if (unwritable != null) {
+        throw unwritable;
+      }
+      long start = channel.position();
+      try {
+        write(ByteBuffer.wrap(format(entries).getBytes(StandardCharsets.UTF_8)));
+      } catch (IOException e) {
+        try {
+          channel.truncate(start);
+          channel.position(start);
+          channel.force(false);
+        } catch (IOException truncateFailure) {
+          e.addSuppressed(truncateFailure);
+          unwritable = e;
+          LOGGER.error("trade ledger {} could not be cut back after a failed write, no more trades are taken", path, e);
+        }
+        throw e;
+      }
+      undrained.addAll(entries);
+    } finally {
+      fileLock.unlock();
+    }
+  }
+
+  // package-private so a test can fail a write halfway
+  void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  private static String format(List<Entry> entries) {
+    StringBuilder lines = new StringBuilder();
+    entries.forEach(entry -> lines.append(entry.format()).append('\n'));
+    return lines.toString();
+  }
+
+  private void replay() throws IOException {
+    truncateTornTail();
+    long drainedSequence = tradeRepository.findMaxLedgerSeq();
+    long lastSequence = drainedSequence;
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Entry entry = Entry.parse(line);
+        lastSequence = Math.max(lastSequence, entry.getSequence());
+        if (entry.getSequence() > drainedSequence) {
+          undrained.add(entry);
+        }
+      }
+    }
+    if (undrained.isEmpty()) {
+      channel.truncate(0);
+    }
+    channel.position(channel.size());
+    nextSequence = lastSequence + 1;
+    LOGGER.info("trade ledger {} opened, {} trades to replay", path, undrained.size());
+  }
+
+  // a crash can leave half a line behind, cut the file back to the last complete entry
+  private void truncateTornTail() throws IOException {
+    long end = channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate(1);
+    while (end > 0) {
+      buffer.clear();
+      channel.read(buffer, end - 1);
+      if (buffer.get(0) == '\n') {
+        break;
+      }
+      end--;
+    }
+    channel.truncate(end);
+  }
+
+  @Getter
+  @AllArgsConstructor
+  static class Entry {
+    private final long sequence;
+    private final int amount;
+    private final int rankNum;
+    private final int userId;
+    private final int rsEventId;
+
+    String format() {
+      return sequence + "," + amount + "," + rankNum + "," + userId + "," + rsEventId;
+    }
+
+    static Entry parse(String line) {
+      String[] values = line.split(",");
+      return new Entry(Long.parseLong(values[0]), Integer.parseInt(values[1]),
+          Integer.parseInt(values[2]), Integer.parseInt(values[3]), Integer.parseInt(values[4]));
+    }
+  }
+
+  private static class PendingAppend {
+    final int amount;
+    final int rankNum;
+    final int userId;
+    final int rsEventId;
+    final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+    PendingAppend(int amount, int rankNum, int userId, int rsEventId) {
+      this.amount = amount;
+      this.rankNum = rankNum;
+      this.userId = userId;
+      this.rsEventId = rsEventId;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.thoughtworks.rslist.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thoughtworks.rslist.domain.UserDeletion;
+import com.thoughtworks.rslist.dto.RsEventSummary;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Deletes a user and everything hanging off it with one set-based statement per table, children
+// first, on a background thread. Nothing is loaded into the persistence context, so the entity
+// listeners never fire and the in-memory indexes are updated here instead. The user is blocked
+// in UserService for the whole job, and the events are read again under a lock on the user row
+// right before the delete, so an event created while the job ran does not stay behind in the
+// leaderboard.
+@Service
+public class UserDeletionService {
+  static final int MAX_JOBS = 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UserDeletionService.class);
+
+  final UserRepository userRepository;
+  final RsEventRepository rsEventRepository;
+  final VoteRepository voteRepository;
+  final TradeRepository tradeRepository;
+  final VoteRollupRepository voteRollupRepository;
+  final RsEventLeaderboard rsEventLeaderboard;
+  final RsEventSearchIndex rsEventSearchIndex;
+  final RankAuction rankAuction;
+  final VoteWriteBehindBuffer voteWriteBehindBuffer;
+  final TradeLedger tradeLedger;
+  final UserService userService;
+  final TransactionTemplate transactionTemplate;
+
+  // finished jobs are kept for status lookups until pushed out by newer ones
+  private final Cache<String, UserDeletion> jobs = Caffeine.newBuilder().maximumSize(MAX_JOBS).build();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "user-deletion");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public UserDeletionService(
+      UserRepository userRepository,
+      RsEventRepository rsEventRepository,
+      VoteRepository voteRepository,
+      TradeRepository tradeRepository,
+      VoteRollupRepository voteRollupRepository,
+      RsEventLeaderboard rsEventLeaderboard,
+      RsEventSearchIndex rsEventSearchIndex,
+      RankAuction rankAuction,
+      VoteWriteBehindBuffer voteWriteBehindBuffer,
+      TradeLedger tradeLedger,
+      UserService userService,
+      PlatformTransactionManager transactionManager) {
+    this.userRepository = userRepository;
+    this.rsEventRepository = rsEventRepository;
+    this.voteRepository = voteRepository;
+    this.tradeRepository = tradeRepository;
+    this.voteRollupRepository = voteRollupRepository;
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.rsEventSearchIndex = rsEventSearchIndex;
+    this.rankAuction = rankAuction;
+    this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+    this.tradeLedger = tradeLedger;
+    this.userService = userService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  // empty when the user does not exist, otherwise the queued job
+  public Optional<UserDeletion> submit(int userId) {
+    if (!userService.findById(userId).isPresent()) {
+      return Optional.empty();
+    }
+    UserDeletion job = UserDeletion.builder()
+        .id(UUID.randomUUID().toString())
+        .userId(userId)
+        .status(UserDeletion.Status.PENDING)
+        .build();
+    jobs.put(job.getId(), job);
+    executor.execute(() -> run(job.getId(), userId));
+    return Optional.of(job);
+  }
+
+  public Optional<UserDeletion> find(String id) {
+    return Optional.ofNullable(jobs.getIfPresent(id));
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  private void run(String jobId, int userId) {
+    update(jobId, job -> job.setStatus(UserDeletion.Status.RUNNING));
+    // before the events are read, so none is created for the user from here on
+    userService.block(userId);
+    List<RsEventSummary> rsEvents = Collections.emptyList();
+    List<RsEventSummary> deleted;
+    try {
+      rsEvents = rsEventRepository.findSummariesByUserId(userId);
+      // off the leaderboard first, so no new vote or write-behind entry lands on an event being deleted
+      rsEvents.forEach(rsEvent -> rsEventLeaderboard.remove(rsEvent.getId()));
+      if (voteWriteBehindBuffer.isEnabled()) {
+        voteWriteBehindBuffer.flush();
+      }
+      if (tradeLedger.isEnabled()) {
+        tradeLedger.drain();
+      }
+      deleted = transactionTemplate.execute(status -> {
+        // a request that found the user before the block may still have added an event
+        userRepository.lockById(userId);
+        List<RsEventSummary> locked = rsEventRepository.findSummariesByUserId(userId);
+        voteRepository.bulkDeleteByUserId(userId);
+        tradeRepository.bulkDeleteByUserId(userId);
+        voteRollupRepository.bulkDeleteByUserId(userId);
+        rsEventRepository.bulkDeleteByUserId(userId);
+        userRepository.bulkDeleteById(userId);
+        return locked;
+      });
+    } catch (RuntimeException e) {
+      LOGGER.error("deleting user {} failed", userId, e);
+      // back on the leaderboard, hot scores restart cold until the next reload
+      rsEvents.forEach(rsEvent -> rsEventLeaderboard.put(RankedEvent.from(rsEvent)));
+      userService.unblock(userId);
+      update(jobId, job -> {
+        job.setStatus(UserDeletion.Status.FAILED);
+        job.setError(e.getMessage());
+      });
+      return;
+    }
+    deleted.forEach(rsEvent -> rsEventLeaderboard.remove(rsEvent.getId()));
+    // searches already skip events off the leaderboard, this only frees their postings
+    deleted.forEach(rsEvent -> rsEventSearchIndex.remove(rsEvent.getId()));
+    deleted.stream().filter(rsEvent -> rsEvent.getRankNum() > 0)
+        .forEach(rsEvent -> rankAuction.evict(rsEvent.getRankNum()));
+    voteWriteBehindBuffer.forgetUser(userId);
+    userService.unblock(userId);
+    userService.evict(userId);
+    int rsEventCount = deleted.size();
+    update(jobId, job -> {
+      job.setStatus(UserDeletion.Status.DONE);
+      job.setRsEventCount(rsEventCount);
+    });
+  }
+
+  // jobs are replaced, never mutated, so a returned job is a stable snapshot
+  private void update(String jobId, Consumer<UserDeletion> change) {
+    jobs.asMap().computeIfPresent(jobId, (id, job) -> {
+      UserDeletion next = job.toBuilder().build();
+      change.accept(next);
+      return next;
+    });
+  }
+}
@@ -1,15 +1,20 @@
 package com.thoughtworks.rslist.service;
 
-import com.thoughtworks.rslist.domain.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thoughtworks.rslist.domain.UserCacheStats;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class UserService {
@@ -20,13 +25,54 @@ public class UserService {
 
     final VoteRepository voteRepository;
 
-    public UserService(RsEventRepository rsEventRepository, UserRepository userRepository, VoteRepository voteRepository) {
+    // read-through, size bounded with Caffeine's W-TinyLFU eviction; missing users are not cached
+    private final Cache<Integer, UserDto> users;
+
+    // users being deleted look missing, so no new event, vote or buy is taken for them
+    private final Set<Integer> blocked = ConcurrentHashMap.newKeySet();
+
+    public UserService(RsEventRepository rsEventRepository, UserRepository userRepository, VoteRepository voteRepository,
+                       @Value("${rs.user.cache.max-size:10000}") long maxSize) {
         this.rsEventRepository = rsEventRepository;
         this.userRepository = userRepository;
         this.voteRepository = voteRepository;
+        this.users = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
     }
 
     public Optional<UserDto> findById(int id) {
-        return userRepository.findById(id);
+        if (blocked.contains(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(users.get(id, key -> userRepository.findById(key).orElse(null)));
+    }
+
+    // call whenever a user's row changes, e.g. its vote balance
+    public void evict(int id) {
+        users.invalidate(id);
+    }
+
+    public void evictAll(Collection<Integer> ids) {
+        users.invalidateAll(ids);
+    }
+
+    public void block(int id) {
+        blocked.add(id);
+        users.invalidate(id);
+    }
+
+    // a lookup racing block() may have cached the user again, evict as well once the row is gone
+    public void unblock(int id) {
+        blocked.remove(id);
+    }
+
+    public UserCacheStats cacheStats() {
+        CacheStats stats = users.stats();
+        return UserCacheStats.builder()
+                .size(users.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
     }
 }
@@ -0,0 +1,191 @@
+package com.thoughtworks.rslist.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
+import com.thoughtworks.rslist.domain.VoteTicket;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Asynchronous vote intake. A vote is checked against the leaderboard and the cached user, then
+// queued on the bounded queue of its event's shard and acknowledged with a ticket. Each shard has
+// one writer thread applying what it drained as one voteAll batch, so an event row is only ever
+// written by one thread and bursts turn into batches instead of competing transactions. Balances
+// are checked again when applied, a ticket can still end up REJECTED.
+@Service
+public class VoteQueue {
+  static final int MAX_TICKETS = 100_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VoteQueue.class);
+
+  final RsService rsService;
+  final RsEventLeaderboard rsEventLeaderboard;
+  final UserService userService;
+
+  private final boolean enabled;
+  private final int batchSize;
+  private final List<BlockingQueue<Pending>> shards = new ArrayList<>();
+  private final List<Thread> writers = new ArrayList<>();
+  private final Cache<String, VoteTicket> tickets = Caffeine.newBuilder().maximumSize(MAX_TICKETS).build();
+  private volatile boolean accepting = true;
+
+  public VoteQueue(
+      RsService rsService,
+      RsEventLeaderboard rsEventLeaderboard,
+      UserService userService,
+      @Value("${rs.vote.async.enabled:false}") boolean enabled,
+      @Value("${rs.vote.async.shards:4}") int shardCount,
+      @Value("${rs.vote.async.capacity:10000}") int capacity,
+      @Value("${rs.vote.async.batch-size:500}") int batchSize) {
+    if (shardCount < 1 || capacity < 1 || batchSize < 1) {
+      throw new IllegalArgumentException("rs.vote.async shards, capacity and batch-size must be positive");
+    }
+    this.rsService = rsService;
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.userService = userService;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new ArrayBlockingQueue<>(capacity));
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    for (int i = 0; i < shards.size(); i++) {
+      BlockingQueue<Pending> shard = shards.get(i);
+      Thread writer = new Thread(() -> write(shard), "vote-queue-" + i);
+      writer.setDaemon(true);
+      writer.start();
+      writers.add(writer);
+    }
+  }
+
+  // stops intake, then lets every writer apply what is already queued
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    accepting = false;
+    for (Thread writer : writers) {
+      writer.join(30_000);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // empty when the shard is full or intake has stopped, the caller should retry later
+  public Optional<VoteTicket> submit(Vote vote, int rsEventId) {
+    if (vote.getVoteNum() <= 0 || !rsEventLeaderboard.find(rsEventId).isPresent()
+        || !userService.findById(vote.getUserId())
+            .filter(userDto -> userDto.getVoteNum() >= vote.getVoteNum())
+            .isPresent()) {
+      throw new RequestNotValidException("invalid vote");
+    }
+    if (!accepting) {
+      return Optional.empty();
+    }
+    VoteTicket ticket = VoteTicket.builder()
+        .id(UUID.randomUUID().toString())
+        .userId(vote.getUserId())
+        .rsEventId(rsEventId)
+        .voteNum(vote.getVoteNum())
+        .status(VoteTicket.Status.QUEUED)
+        .build();
+    Vote queued = vote.toBuilder().rsEventId(rsEventId).time(vote.timeOrNow()).build();
+    tickets.put(ticket.getId(), ticket);
+    if (!shards.get(Math.floorMod(rsEventId, shards.size())).offer(new Pending(ticket.getId(), queued))) {
+      tickets.invalidate(ticket.getId());
+      return Optional.empty();
+    }
+    return Optional.of(ticket);
+  }
+
+  public Optional<VoteTicket> find(String id) {
+    return Optional.ofNullable(tickets.getIfPresent(id));
+  }
+
+  public int queuedCount() {
+    return shards.stream().mapToInt(BlockingQueue::size).sum();
+  }
+
+  private void write(BlockingQueue<Pending> shard) {
+    List<Pending> batch = new ArrayList<>(batchSize);
+    while (accepting || !shard.isEmpty()) {
+      try {
+        Pending first = shard.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        shard.drainTo(batch, batchSize - 1);
+        apply(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void apply(List<Pending> batch) {
+    List<Vote> votes = new ArrayList<>(batch.size());
+    batch.forEach(pending -> votes.add(pending.vote));
+    List<VoteResult> results;
+    try {
+      results = rsService.voteAll(votes);
+    } catch (RuntimeException e) {
+      LOGGER.error("applying {} queued votes failed", batch.size(), e);
+      batch.forEach(pending -> update(pending.ticketId, ticket -> {
+        ticket.setStatus(VoteTicket.Status.FAILED);
+        ticket.setError("vote could not be applied");
+      }));
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      VoteResult result = results.get(i);
+      update(batch.get(i).ticketId, ticket -> {
+        ticket.setStatus(result.isSuccess() ? VoteTicket.Status.APPLIED : VoteTicket.Status.REJECTED);
+        ticket.setError(result.getError());
+      });
+    }
+  }
+
+  // tickets are replaced, never mutated, so a returned ticket is a stable snapshot
+  private void update(String ticketId, Consumer<VoteTicket> change) {
+    tickets.asMap().computeIfPresent(ticketId, (id, ticket) -> {
+      VoteTicket next = ticket.toBuilder().build();
+      change.accept(next);
+      return next;
+    });
+  }
+
+  private static class Pending {
+    final String ticketId;
+    final Vote vote;
+
+    Pending(String ticketId, Vote vote) {
+      this.ticketId = ticketId;
+      this.vote = vote;
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteJdbcRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Optional write-behind mode for votes: balances are debited in memory, vote counts gather in
+// per-event LongAdders that are folded into the leaderboard every FOLD_INTERVAL_MS, and rows
+// reach the database in periodic batches. A vote takes no lock shared with other events or users.
+@Component
+public class VoteWriteBehindBuffer {
+  static final long MAX_FLUSH_INTERVAL_MS = 60_000;
+  static final int MAX_DEAD_LETTERS = 1000;
+  static final long FOLD_INTERVAL_MS = 100;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VoteWriteBehindBuffer.class);
+
+  final RsEventRepository rsEventRepository;
+  final UserRepository userRepository;
+  final VoteRepository voteRepository;
+  final VoteJdbcRepository voteJdbcRepository;
+  final RsEventLeaderboard rsEventLeaderboard;
+  final UserService userService;
+  final TransactionTemplate transactionTemplate;
+
+  private final boolean enabled;
+  private final long flushIntervalMs;
+  private final int batchSize;
+
+  // only users with votes waiting to be written, see Balance
+  private final Map<Integer, Balance> userBalances = new ConcurrentHashMap<>();
+  private final Map<Integer, LongAdder> unfoldedVoteNums = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedDeque<Vote> pendingVotes = new ConcurrentLinkedDeque<>();
+  // votes whose user or event was gone by the time they were written, refunded and kept for inspection
+  private final ConcurrentLinkedDeque<Vote> deadLetters = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private ScheduledExecutorService scheduler;
+
+  public VoteWriteBehindBuffer(
+      RsEventRepository rsEventRepository,
+      UserRepository userRepository,
+      VoteRepository voteRepository,
+      VoteJdbcRepository voteJdbcRepository,
+      RsEventLeaderboard rsEventLeaderboard,
+      UserService userService,
+      PlatformTransactionManager transactionManager,
+      @Value("${rs.vote.write-behind.enabled:false}") boolean enabled,
+      @Value("${rs.vote.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+      @Value("${rs.vote.write-behind.batch-size:1000}") int batchSize) {
+    if (flushIntervalMs < 1 || flushIntervalMs > MAX_FLUSH_INTERVAL_MS) {
+      throw new IllegalArgumentException(
+          "rs.vote.write-behind.flush-interval-ms must be between 1 and " + MAX_FLUSH_INTERVAL_MS);
+    }
+    this.rsEventRepository = rsEventRepository;
+    this.userRepository = userRepository;
+    this.voteRepository = voteRepository;
+    this.voteJdbcRepository = voteJdbcRepository;
+    this.rsEventLeaderboard = rsEventLeaderboard;
+    this.userService = userService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.enabled = enabled;
+    this.flushIntervalMs = flushIntervalMs;
+    this.batchSize = batchSize;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "vote-write-behind");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(
+        this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    scheduler.scheduleWithFixedDelay(
+        this::fold, FOLD_INTERVAL_MS, FOLD_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (scheduler == null) {
+      return;
+    }
+    scheduler.shutdown();
+    scheduler.awaitTermination(flushIntervalMs + 10_000, TimeUnit.MILLISECONDS);
+    flush();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void vote(Vote vote, int rsEventId) {
+    int voteNum = vote.getVoteNum();
+    if (voteNum <= 0 || !rsEventLeaderboard.find(rsEventId).isPresent()) {
+      throw new RuntimeException();
+    }
+    // the debit and the pending count change together under the entry's lock, so a flush
+    // dropping the entry cannot lose a debit
+    boolean[] debited = new boolean[1];
+    userBalances.compute(vote.getUserId(), (userId, balance) -> {
+      if (balance == null) {
+        balance = userService.findById(userId).map(userDto -> new Balance(userDto.getVoteNum())).orElse(null);
+      }
+      if (balance == null || voteNum > balance.available) {
+        return balance != null && balance.pendingVotes > 0 ? balance : null;
+      }
+      balance.available -= voteNum;
+      balance.pendingVotes++;
+      debited[0] = true;
+      return balance;
+    });
+    if (!debited[0]) {
+      throw new RuntimeException();
+    }
+
+    pendingVotes.add(Vote.builder().userId(vote.getUserId()).rsEventId(rsEventId)
+        .time(vote.timeOrNow()).voteNum(voteNum).build());
+    unfoldedVoteNums.computeIfAbsent(rsEventId, id -> new LongAdder()).add(voteNum);
+    if (pendingCount.incrementAndGet() >= batchSize && scheduler != null) {
+      scheduler.execute(this::flushQuietly);
+    }
+  }
+
+  // drops the in-memory balance of a deleted user
+  public void forgetUser(int userId) {
+    userBalances.remove(userId);
+  }
+
+  public int pendingCount() {
+    return pendingCount.get();
+  }
+
+  public List<Vote> deadLetters() {
+    return new ArrayList<>(deadLetters);
+  }
+
+  // Moves the gathered vote counts into the leaderboard, one write lock per event with new votes.
+  // The hot score takes them at fold time, at most FOLD_INTERVAL_MS after they were cast.
+  // sum then add(-sum) rather than sumThenReset, which can drop a concurrent add on Java 8.
+  public void fold() {
+    LocalDateTime now = LocalDateTime.now();
+    unfoldedVoteNums.forEach((rsEventId, voteNums) -> {
+      long sum = voteNums.sum();
+      if (sum != 0) {
+        voteNums.add(-sum);
+        if (!rsEventLeaderboard.addVotes(rsEventId, (int) sum, now)) {
+          // the event is gone, so are its votes
+          unfoldedVoteNums.remove(rsEventId, voteNums);
+        }
+      }
+    });
+  }
+
+  // votes that could not be written for a passing reason go back to the head of the queue
+  public void flush() {
+    fold();
+    flushLock.lock();
+    try {
+      List<Vote> batch;
+      while (!(batch = drain()).isEmpty()) {
+        List<Vote> unwritten = new ArrayList<>();
+        RuntimeException failure = writeOrSplit(batch, unwritten);
+        if (failure != null) {
+          for (int i = unwritten.size() - 1; i >= 0; i--) {
+            pendingVotes.addFirst(unwritten.get(i));
+          }
+          pendingCount.addAndGet(unwritten.size());
+          throw failure;
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOGGER.error("vote write-behind flush failed, {} votes kept for retry", pendingCount.get(), e);
+    }
+  }
+
+  private List<Vote> drain() {
+    List<Vote> batch = new ArrayList<>();
+    Vote vote;
+    while (batch.size() < batchSize && (vote = pendingVotes.poll()) != null) {
+      batch.add(vote);
+    }
+    pendingCount.addAndGet(-batch.size());
+    return batch;
+  }
+
+  // A failed batch is halved until the vote that fails is found alone. If its user or event is
+  // gone it is dead-lettered, otherwise the failure is taken as passing (the database is away) and
+  // the rest of the batch is not tried, so an outage costs O(log n) attempts rather than n.
+  private RuntimeException writeOrSplit(List<Vote> batch, List<Vote> unwritten) {
+    try {
+      write(batch);
+      return null;
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        if (isOrphaned(batch.get(0))) {
+          deadLetter(batch.get(0), e);
+          return null;
+        }
+        unwritten.addAll(batch);
+        return e;
+      }
+      int middle = batch.size() / 2;
+      RuntimeException failure = writeOrSplit(batch.subList(0, middle), unwritten);
+      if (failure != null) {
+        unwritten.addAll(batch.subList(middle, batch.size()));
+        return failure;
+      }
+      return writeOrSplit(batch.subList(middle, batch.size()), unwritten);
+    }
+  }
+
+  private boolean isOrphaned(Vote vote) {
+    try {
+      return !userRepository.existsById(vote.getUserId()) || !rsEventRepository.existsById(vote.getRsEventId());
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  // hands the votes back to the user and takes them off the event, the hot score keeps them
+  private void deadLetter(Vote vote, RuntimeException e) {
+    LOGGER.error("dropping vote of user {} on event {} that cannot be written",
+        vote.getUserId(), vote.getRsEventId(), e);
+    settle(vote.getUserId(), vote.getVoteNum());
+    unfoldedVoteNums.computeIfAbsent(vote.getRsEventId(), id -> new LongAdder()).add(-vote.getVoteNum());
+    deadLetters.add(vote);
+    while (deadLetters.size() > MAX_DEAD_LETTERS) {
+      deadLetters.poll();
+    }
+  }
+
+  private void write(List<Vote> batch) {
+    Map<Integer, Integer> rsEventVoteNums = new HashMap<>();
+    Map<Integer, Integer> userVoteNums = new HashMap<>();
+    for (Vote vote : batch) {
+      rsEventVoteNums.merge(vote.getRsEventId(), vote.getVoteNum(), Integer::sum);
+      userVoteNums.merge(vote.getUserId(), vote.getVoteNum(), Integer::sum);
+    }
+    transactionTemplate.execute(status -> {
+      voteRepository.saveAll(
+          batch.stream()
+              .map(vote -> VoteDto.builder()
+                  .localDateTime(vote.getTime())
+                  .num(vote.getVoteNum())
+                  .rsEvent(rsEventRepository.getOne(vote.getRsEventId()))
+                  .user(userRepository.getOne(vote.getUserId()))
+                  .build())
+              .collect(Collectors.toList()));
+      voteJdbcRepository.increaseRsEventVoteNums(rsEventVoteNums);
+      voteJdbcRepository.decreaseUserVoteNums(userVoteNums);
+      voteJdbcRepository.addVoteRollups(batch);
+      return null;
+    });
+    userService.evictAll(userVoteNums.keySet());
+    batch.forEach(vote -> settle(vote.getUserId(), 0));
+  }
+
+  // a written or dropped vote no longer waits; once none of the user's do, the entry goes and
+  // the next vote reads the balance the database now holds
+  private void settle(int userId, int refund) {
+    userBalances.computeIfPresent(userId, (id, balance) -> {
+      balance.available += refund;
+      return --balance.pendingVotes == 0 ? null : balance;
+    });
+  }
+
+  // only read and changed inside userBalances.compute for its user
+  private static class Balance {
+    int available;
+    int pendingVotes;
+
+    Balance(int available) {
+      this.available = available;
+    }
+  }
+}
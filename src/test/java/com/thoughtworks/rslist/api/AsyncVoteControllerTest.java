@@ -0,0 +1,96 @@
+package com.thoughtworks.rslist.api;
+
+import com.jayway.jsonpath.JsonPath;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "rs.vote.async.enabled=true")
+@AutoConfigureMockMvc
+class AsyncVoteControllerTest {
+  @Autowired
+  MockMvc mockMvc;
+  @Autowired
+  UserRepository userRepository;
+  @Autowired
+  RsEventRepository rsEventRepository;
+  @Autowired
+  VoteRepository voteRepository;
+  @Autowired
+  VoteRollupRepository voteRollupRepository;
+  UserDto userDto;
+  RsEventDto rsEventDto;
+
+  @BeforeEach
+  void setUp() {
+    userDto = userRepository.save(UserDto.builder().userName("idolice").age(19).email("a@b.com")
+        .gender("female").phone("18888888888").voteNum(10).build());
+    rsEventDto = rsEventRepository.save(RsEventDto.builder().user(userDto).eventName("event name")
+        .keyword("keyword").voteNum(0).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    voteRollupRepository.deleteAll();
+    voteRepository.deleteAll();
+    rsEventRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void shouldAcceptVoteAndApplyItInBackground() throws Exception {
+    String location = mockMvc.perform(post("/rs/vote/{id}", rsEventDto.getId())
+        .content(String.format("{\"userId\":%d,\"voteNum\":3}", userDto.getId()))
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.status", is("QUEUED")))
+        .andReturn().getResponse().getHeader("Location");
+
+    assertEquals(awaitTicket(location), "APPLIED");
+    assertEquals(rsEventRepository.findById(rsEventDto.getId()).get().getVoteNum(), 3);
+    assertEquals(userRepository.findById(userDto.getId()).get().getVoteNum(), 7);
+    assertEquals(voteRepository.findAll().size(), 1);
+  }
+
+  @Test
+  void shouldRejectInvalidVoteBeforeQueueing() throws Exception {
+    mockMvc.perform(post("/rs/vote/{id}", rsEventDto.getId())
+        .content(String.format("{\"userId\":%d,\"voteNum\":11}", userDto.getId()))
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid vote")));
+    mockMvc.perform(get("/rs/vote/status/unknown")).andExpect(status().isNotFound());
+  }
+
+  private String awaitTicket(String location) throws Exception {
+    for (int i = 0; i < 100; i++) {
+      String status = JsonPath.read(mockMvc.perform(get(location)).andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString(), "$.status");
+      if (!"QUEUED".equals(status)) {
+        return status;
+      }
+      Thread.sleep(50);
+    }
+    fail("queued vote was not applied");
+    return null;
+  }
+}
@@ -0,0 +1,105 @@
+package com.thoughtworks.rslist.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thoughtworks.rslist.domain.ImportResult;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.service.ImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ImportControllerTest {
+  @Autowired MockMvc mockMvc;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired TradeRepository tradeRepository;
+  @Autowired Validator validator;
+  @Autowired ObjectMapper objectMapper;
+  @Autowired PlatformTransactionManager transactionManager;
+  private UserDto userDto;
+
+  @BeforeEach
+  void setUp() {
+    tradeRepository.deleteAll();
+    voteRepository.deleteAll();
+    rsEventRepository.deleteAll();
+    userRepository.deleteAll();
+    userDto = userRepository.save(UserDto.builder().userName("Mike").age(20).phone("13386688553")
+            .email("mike@thoughtworks.com").gender("male").voteNum(20).build());
+  }
+
+  @Test
+  public void shouldImportUsersAndEvents() throws Exception {
+    String lines = String.join("\n",
+        "{\"key\":\"lily\",\"user\":{\"userName\":\"Lily\",\"gender\":\"female\",\"age\":19,\"email\":\"a@b.com\",\"phone\":\"18888888888\"}}",
+        "{\"user\":{\"userName\":\"TooLongName\",\"gender\":\"female\",\"age\":19,\"email\":\"a@b.com\",\"phone\":\"18888888888\"}}",
+        "{\"userKey\":\"lily\",\"rsEvent\":{\"eventName\":\"FirstEvent\",\"keyword\":\"Economy\",\"voteNum\":5}}",
+        "{\"userKey\":\"lucy\",\"rsEvent\":{\"eventName\":\"SecondEvent\",\"keyword\":\"Economy\"}}",
+        "not json",
+        "",
+        String.format("{\"rsEvent\":{\"eventName\":\"ThirdEvent\",\"keyword\":\"Politics\",\"userId\":%d}}", userDto.getId()),
+        String.format("{\"rsEvent\":{\"eventName\":\"ForthEvent\",\"keyword\":\"Politics\",\"userId\":%d}}", userDto.getId() + 100));
+
+    mockMvc.perform(post("/import").content(lines).contentType(ImportController.NDJSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.userCount", is(1)))
+        .andExpect(jsonPath("$.rsEventCount", is(2)))
+        .andExpect(jsonPath("$.errors", hasSize(4)))
+        .andExpect(jsonPath("$.errors[0]", is("line 2: user.userName size must be between 0 and 8")))
+        .andExpect(jsonPath("$.errors[1]", is("line 4: unknown user key lucy")))
+        .andExpect(jsonPath("$.errors[2]", is("line 5: invalid json")))
+        .andExpect(jsonPath("$.errors[3]", is("line 8: user not exist")));
+
+    List<RsEventDto> rsEvents = rsEventRepository.findAll();
+    assertEquals(rsEvents.size(), 2);
+    assertEquals(userRepository.findAll().size(), 2);
+    mockMvc.perform(get("/rs/1"))
+        .andExpect(jsonPath("$.eventName", is("FirstEvent")))
+        .andExpect(jsonPath("$.voteNum", is(5)));
+  }
+
+  @Test
+  public void shouldResolveUserKeysAcrossBatches() throws Exception {
+    ImportService importService = new ImportService(userRepository, rsEventRepository, validator,
+        objectMapper, transactionManager, 2);
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      lines.append(String.format("{\"key\":\"u%d\",\"user\":{\"userName\":\"user%d\",\"age\":20,\"phone\":\"18888888888\"}}\n", i, i));
+      lines.append(String.format("{\"userKey\":\"u%d\",\"rsEvent\":{\"eventName\":\"event%d\",\"keyword\":\"k\"}}\n", i, i));
+    }
+
+    ImportResult result = importService.importRecords(
+        new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(result.getUserCount(), 5);
+    assertEquals(result.getRsEventCount(), 5);
+    for (RsEventDto rsEventDto : rsEventRepository.findAll()) {
+      assertEquals(rsEventDto.getUser().getUserName(), "user" + rsEventDto.getEventName().substring(5));
+    }
+  }
+}
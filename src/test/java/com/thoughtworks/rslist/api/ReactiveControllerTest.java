@@ -0,0 +1,100 @@
+package com.thoughtworks.rslist.api;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReactiveControllerTest {
+  @Autowired MockMvc mockMvc;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  UserDto userDto;
+  RsEventDto rsEventDto;
+
+  @BeforeEach
+  void setUp() {
+    userDto = userRepository.save(UserDto.builder().userName("Mike").age(20).phone("13386688553")
+        .email("mike@thoughtworks.com").gender("male").voteNum(20).build());
+    rsEventDto = rsEventRepository.save(RsEventDto.builder().eventName("FirstEvent").keyword("Economy")
+        .voteNum(10).user(userDto).build());
+    rsEventRepository.save(RsEventDto.builder().eventName("SecondEvent").keyword("Politics")
+        .voteNum(5).user(userDto).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    voteRepository.deleteAll();
+    rsEventRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  public void shouldGetRsEventListReactively() throws Exception {
+    MvcResult result = mockMvc.perform(get("/reactive/rs/list").param("start", "2").param("end", "2"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].eventName", is("SecondEvent")));
+  }
+
+  @Test
+  public void shouldGetBadRequestWhenIndexOutOfRange() throws Exception {
+    MvcResult result = mockMvc.perform(get("/reactive/rs/{index}", 3)).andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid index")));
+  }
+
+  @Test
+  public void shouldGetVoteRecordReactively() throws Exception {
+    LocalDateTime time = LocalDateTime.of(2020, 5, 1, 0, 0);
+    for (int i = 1; i <= 3; i++) {
+      voteRepository.save(VoteDto.builder().user(userDto).rsEvent(rsEventDto).localDateTime(time.plusMinutes(i))
+          .num(i).build());
+    }
+
+    MvcResult result = mockMvc.perform(get("/reactive/voteRecord")
+        .param("userId", String.valueOf(userDto.getId()))
+        .param("rsEventId", String.valueOf(rsEventDto.getId()))
+        .param("from", "2020-05-01T00:02:00")
+        .accept(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].voteNum", is(2)))
+        .andExpect(jsonPath("$[1].userId", is(userDto.getId())))
+        .andExpect(jsonPath("$[1].rsEventId", is(rsEventDto.getId())));
+  }
+}
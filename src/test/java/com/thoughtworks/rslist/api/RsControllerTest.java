@@ -6,8 +6,11 @@ import com.thoughtworks.rslist.dto.RsEventDto;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.service.LeaderboardSnapshotPublisher;
+import com.thoughtworks.rslist.service.RsEventLeaderboard;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +19,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Date;
@@ -27,9 +33,14 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -39,12 +50,17 @@ class RsControllerTest {
   @Autowired UserRepository userRepository;
   @Autowired RsEventRepository rsEventRepository;
   @Autowired VoteRepository voteRepository;
+  @Autowired TradeRepository tradeRepository;
+  @Autowired RsEventLeaderboard rsEventLeaderboard;
+  @Autowired LeaderboardSnapshotPublisher leaderboardSnapshotPublisher;
+  @Autowired PlatformTransactionManager transactionManager;
   private UserDto userDto;
 
   private ObjectMapper objectMapper;
 
   @BeforeEach
   void setUp() {
+    tradeRepository.deleteAll();
     voteRepository.deleteAll();
     rsEventRepository.deleteAll();
     userRepository.deleteAll();
@@ -71,11 +87,129 @@ class RsControllerTest {
 
     mockMvc
         .perform(get("/rs/list"))
+        .andExpect(jsonPath("$", hasSize(4)))
+        .andExpect(jsonPath("$[3].eventName", is("第一条事件")))
+        .andExpect(jsonPath("$[3].keyword", is("无分类")))
+        .andExpect(jsonPath("$[3]", not(hasKey("user"))))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void shouldOrderRsEventListByRankThenVoteNum() throws Exception {
+    rsEventRepository.save(RsEventDto.builder().eventName("FewVotes").keyword("Sport")
+            .voteNum(1).user(userDto).build());
+    rsEventRepository.save(RsEventDto.builder().eventName("ManyVotes").keyword("Sport")
+            .voteNum(50).user(userDto).build());
+
+    mockMvc
+        .perform(get("/rs/list"))
+        .andExpect(jsonPath("$", hasSize(5)))
+        .andExpect(jsonPath("$[0].eventName", is("FirstEvent")))
+        .andExpect(jsonPath("$[2].eventName", is("ThirdEvent")))
+        .andExpect(jsonPath("$[3].eventName", is("ManyVotes")))
+        .andExpect(jsonPath("$[4].eventName", is("FewVotes")))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void shouldStreamRsEventListInRankOrder() throws Exception {
+    rsEventRepository.save(RsEventDto.builder().eventName("ForthEvent").keyword("Sports")
+            .voteNum(50).user(userDto).build());
+    MvcResult asyncResult = mockMvc.perform(get("/rs/list").param("stream", "true"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(4)))
+        .andExpect(jsonPath("$[0].eventName", is("FirstEvent")))
+        .andExpect(jsonPath("$[2].eventName", is("ThirdEvent")))
+        .andExpect(jsonPath("$[3].eventName", is("ForthEvent")))
+        .andExpect(jsonPath("$[3].voteNum", is(50)))
+        .andExpect(jsonPath("$[3]", not(hasKey("user"))));
+  }
+
+  @Test
+  public void shouldGetHotRsEventList() throws Exception {
+    List<RsEventDto> rsEvents = rsEventRepository.findAll();
+    rsEventLeaderboard.addVotes(rsEvents.get(1).getId(), 5, LocalDateTime.now().minusDays(30));
+    // a client sent time is ignored, a vote dated a year ahead weighs as one cast now
+    String jsonValue = String.format("[{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":2},"
+            + "{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":1,\"time\":\"%s\"}]",
+        userDto.getId(), rsEvents.get(2).getId(),
+        userDto.getId(), rsEvents.get(0).getId(), LocalDateTime.now().plusYears(1));
+    mockMvc.perform(post("/rs/votes").content(jsonValue).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/rs/list").param("sort", "hot"))
+        .andExpect(jsonPath("$", hasSize(3)))
+        .andExpect(jsonPath("$[0].eventName", is("ThirdEvent")))
+        .andExpect(jsonPath("$[1].eventName", is("FirstEvent")))
+        .andExpect(jsonPath("$[2].eventName", is("SecondEvent")));
+    mockMvc.perform(get("/rs/list").param("sort", "hot").param("start", "2").param("end", "2"))
         .andExpect(jsonPath("$", hasSize(1)))
-        .andExpect(jsonPath("$[0].eventName", is("第一条事件")))
-        .andExpect(jsonPath("$[0].keyword", is("无分类")))
-        .andExpect(jsonPath("$[0]", not(hasKey("user"))))
+        .andExpect(jsonPath("$[0].eventName", is("FirstEvent")));
+    assertEquals(voteRepository.findAll().stream()
+        .allMatch(voteDto -> !voteDto.getLocalDateTime().isAfter(LocalDateTime.now())), true);
+  }
+
+  @Test
+  public void shouldAnswerNotModifiedUntilRsEventListChanges() throws Exception {
+    String etag = mockMvc.perform(get("/rs/list"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("ETag");
+    assertNotNull(etag);
+
+    mockMvc.perform(get("/rs/list").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+    mockMvc.perform(get("/rs/1").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    String jsonValue = String.format("{\"userId\":%d,\"voteNum\":1}", userDto.getId());
+    mockMvc.perform(post("/rs/vote/{id}", rsEventRepository.findAll().get(0).getId())
+        .content(jsonValue).contentType(MediaType.APPLICATION_JSON))
         .andExpect(status().isOk());
+
+    mockMvc.perform(get("/rs/list").header("If-None-Match", etag))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", not(etag)))
+        .andExpect(jsonPath("$[0].voteNum", is(11)));
+  }
+
+  @Test
+  public void shouldNotChangeRsEventListWhenWriteRollsBack() throws Exception {
+    String before = mockMvc.perform(get("/rs/list")).andReturn().getResponse().getContentAsString();
+    String version = rsEventLeaderboard.version();
+
+    new TransactionTemplate(transactionManager).execute(status -> {
+      RsEventDto first = rsEventRepository.findByRankNum(1).get();
+      first.setVoteNum(100);
+      rsEventRepository.saveAndFlush(first);
+      rsEventRepository.saveAndFlush(RsEventDto.builder().eventName("RolledBack").keyword("Economy")
+          .voteNum(50).user(userDto).build());
+      rsEventRepository.delete(rsEventRepository.findByRankNum(2).get());
+      rsEventRepository.flush();
+      status.setRollbackOnly();
+      return null;
+    });
+
+    assertEquals(rsEventLeaderboard.version(), version);
+    mockMvc.perform(get("/rs/list"))
+        .andExpect(content().string(before));
+  }
+
+  @Test
+  public void shouldServeSameRsEventListFromSnapshot() throws Exception {
+    String live = mockMvc.perform(get("/rs/list"))
+        .andReturn().getResponse().getContentAsString();
+    for (int i = 0; i < 100 && !leaderboardSnapshotPublisher.findAll(rsEventLeaderboard.version()).isPresent(); i++) {
+      Thread.sleep(10);
+    }
+
+    mockMvc.perform(get("/rs/list"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json(live, true));
   }
 
   @Test
@@ -88,10 +222,26 @@ class RsControllerTest {
     rsEventRepository.save(rsEventDto);
     rsEventDto = RsEventDto.builder().keyword("无分类").eventName("第二条事件").user(save).build();
     rsEventRepository.save(rsEventDto);
-    mockMvc.perform(get("/rs/1")).andExpect(jsonPath("$.eventName", is("第一条事件")));
-    mockMvc.perform(get("/rs/1")).andExpect(jsonPath("$.keyword", is("无分类")));
-    mockMvc.perform(get("/rs/2")).andExpect(jsonPath("$.eventName", is("第二条事件")));
-    mockMvc.perform(get("/rs/2")).andExpect(jsonPath("$.keyword", is("无分类")));
+    mockMvc.perform(get("/rs/1")).andExpect(jsonPath("$.eventName", is("FirstEvent")));
+    mockMvc.perform(get("/rs/1")).andExpect(jsonPath("$.rank", is(1)));
+    mockMvc.perform(get("/rs/4")).andExpect(jsonPath("$.eventName", is("第一条事件")));
+    mockMvc.perform(get("/rs/4")).andExpect(jsonPath("$.keyword", is("无分类")));
+    mockMvc.perform(get("/rs/5")).andExpect(jsonPath("$.eventName", is("第二条事件")));
+    mockMvc.perform(get("/rs/5")).andExpect(jsonPath("$.keyword", is("无分类")));
+  }
+
+  @Test
+  public void shouldGetOneEventAfterReorder() throws Exception {
+    rsEventRepository.save(RsEventDto.builder().keyword("无分类").eventName("第一条事件")
+            .user(userDto).build());
+    rsEventRepository.save(RsEventDto.builder().keyword("无分类").eventName("第二条事件")
+            .user(userDto).build());
+    mockMvc.perform(get("/rs/4")).andExpect(jsonPath("$.eventName", is("第一条事件")));
+
+    rsEventRepository.save(RsEventDto.builder().keyword("无分类").eventName("第三条事件")
+            .voteNum(3).user(userDto).build());
+    mockMvc.perform(get("/rs/4")).andExpect(jsonPath("$.eventName", is("第三条事件")));
+    mockMvc.perform(get("/rs/5")).andExpect(jsonPath("$.eventName", is("第一条事件")));
   }
 
   @Test
@@ -100,6 +250,10 @@ class RsControllerTest {
         .perform(get("/rs/4"))
         .andExpect(status().isBadRequest())
         .andExpect(jsonPath("$.error", is("invalid index")));
+    mockMvc
+        .perform(get("/rs/0"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid index")));
   }
 
   @Test
@@ -115,21 +269,21 @@ class RsControllerTest {
     rsEventDto = RsEventDto.builder().keyword("无分类").eventName("第三条事件").user(save).build();
     rsEventRepository.save(rsEventDto);
     mockMvc
-        .perform(get("/rs/list?start=1&end=2"))
+        .perform(get("/rs/list?start=4&end=5"))
         .andExpect(jsonPath("$", hasSize(2)))
         .andExpect(jsonPath("$[0].eventName", is("第一条事件")))
         .andExpect(jsonPath("$[0].keyword", is("无分类")))
         .andExpect(jsonPath("$[1].eventName", is("第二条事件")))
         .andExpect(jsonPath("$[1].keyword", is("无分类")));
     mockMvc
-        .perform(get("/rs/list?start=2&end=3"))
+        .perform(get("/rs/list?start=5&end=6"))
         .andExpect(jsonPath("$", hasSize(2)))
         .andExpect(jsonPath("$[0].eventName", is("第二条事件")))
         .andExpect(jsonPath("$[0].keyword", is("无分类")))
         .andExpect(jsonPath("$[1].eventName", is("第三条事件")))
         .andExpect(jsonPath("$[1].keyword", is("无分类")));
     mockMvc
-        .perform(get("/rs/list?start=1&end=3"))
+        .perform(get("/rs/list?start=4&end=6"))
         .andExpect(jsonPath("$", hasSize(3)))
         .andExpect(jsonPath("$[0].keyword", is("无分类")))
         .andExpect(jsonPath("$[1].eventName", is("第二条事件")))
@@ -138,6 +292,134 @@ class RsControllerTest {
         .andExpect(jsonPath("$[2].keyword", is("无分类")));
   }
 
+  @Test
+  public void shouldGetRsListOfKeyword() throws Exception {
+    rsEventRepository.save(RsEventDto.builder().eventName("FourthEvent").keyword("Economy")
+            .voteNum(3).user(userDto).build());
+    rsEventRepository.save(RsEventDto.builder().eventName("FifthEvent").keyword("Economy")
+            .voteNum(7).user(userDto).build());
+
+    mockMvc.perform(get("/rs/list").param("keyword", "Economy"))
+        .andExpect(jsonPath("$", hasSize(3)))
+        .andExpect(jsonPath("$[0].eventName", is("FirstEvent")))
+        .andExpect(jsonPath("$[1].eventName", is("FifthEvent")))
+        .andExpect(jsonPath("$[2].eventName", is("FourthEvent")));
+    mockMvc.perform(get("/rs/list?keyword=Economy&start=2&end=5"))
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].eventName", is("FifthEvent")));
+    mockMvc.perform(get("/rs/list").param("keyword", "Unknown"))
+        .andExpect(jsonPath("$", hasSize(0)));
+
+    String jsonString = objectMapper.writeValueAsString(RsEvent.builder().eventName("ForthEvent")
+            .keyword("Entertainment").userId(userDto.getId()).voteNum(0).build());
+    mockMvc.perform(post("/rs/buy").param("amount", "100").param("rank", "1")
+            .content(jsonString).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/rs/list").param("keyword", "Economy"))
+        .andExpect(jsonPath("$", hasSize(2)))
+        .andExpect(jsonPath("$[0].eventName", is("FifthEvent")));
+    mockMvc.perform(get("/rs/list").param("keyword", "Entertainment"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].rank", is(1)));
+  }
+
+  @Test
+  public void shouldSearchRsEventsByNameAndKeyword() throws Exception {
+    rsEventRepository.save(RsEventDto.builder().eventName("第一条事件").keyword("无分类")
+            .voteNum(30).user(userDto).build());
+
+    mockMvc.perform(get("/rs/search").param("q", "econ first"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].eventName", is("FirstEvent")));
+    mockMvc.perform(get("/rs/search").param("q", "事件"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].voteNum", is(30)));
+    mockMvc.perform(get("/rs/search").param("q", "polit").param("limit", "1"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].eventName", is("SecondEvent")));
+
+    String jsonString = objectMapper.writeValueAsString(RsEvent.builder().eventName("ForthEvent")
+            .keyword("Entertainment").userId(userDto.getId()).voteNum(0).build());
+    mockMvc.perform(post("/rs/buy").param("amount", "100").param("rank", "2")
+            .content(jsonString).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/rs/search").param("q", "polit"))
+        .andExpect(jsonPath("$", hasSize(0)));
+    mockMvc.perform(get("/rs/search").param("q", "entertain"))
+        .andExpect(jsonPath("$[0].eventName", is("ForthEvent")));
+    mockMvc.perform(get("/rs/search").param("q", " "))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid request param")));
+  }
+
+  @Test
+  public void shouldGetRsListPageByCursor() throws Exception {
+    rsEventRepository.save(RsEventDto.builder().eventName("FewVotes").keyword("Sport")
+            .voteNum(1).user(userDto).build());
+    rsEventRepository.save(RsEventDto.builder().eventName("ManyVotes").keyword("Sport")
+            .voteNum(50).user(userDto).build());
+
+    String cursor = mockMvc.perform(get("/rs/list").param("size", "2"))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].eventName", is("FirstEvent")))
+            .andExpect(jsonPath("$[1].eventName", is("SecondEvent")))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("Next-Cursor");
+    cursor = mockMvc.perform(get("/rs/list").param("size", "2").param("cursor", cursor))
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].eventName", is("ThirdEvent")))
+            .andExpect(jsonPath("$[1].eventName", is("ManyVotes")))
+            .andExpect(jsonPath("$[1].userId", is(userDto.getId())))
+            .andReturn().getResponse().getHeader("Next-Cursor");
+    mockMvc.perform(get("/rs/list").param("size", "2").param("cursor", cursor))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].eventName", is("FewVotes")))
+            .andExpect(header().doesNotExist("Next-Cursor"));
+  }
+
+  @Test
+  public void shouldGetRsListPageByCursorAfterVotes() throws Exception {
+    RsEventDto fewVotes = rsEventRepository.save(RsEventDto.builder().eventName("FewVotes").keyword("Sport")
+            .voteNum(1).user(userDto).build());
+    RsEventDto manyVotes = rsEventRepository.save(RsEventDto.builder().eventName("ManyVotes").keyword("Sport")
+            .voteNum(10).user(userDto).build());
+    mockMvc.perform(post("/rs/vote/" + fewVotes.getId())
+            .content("{\"userId\":" + userDto.getId() + ",\"voteNum\":8}").contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+    mockMvc.perform(post("/rs/votes")
+            .content(String.format("[{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":7}]",
+                userDto.getId(), fewVotes.getId()))
+            .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    assertEquals(rsEventRepository.findById(fewVotes.getId()).get().getNegVoteNum(), -16);
+    assertEquals(rsEventRepository.findById(manyVotes.getId()).get().getNegVoteNum(), -10);
+    String cursor = mockMvc.perform(get("/rs/list").param("size", "4"))
+            .andExpect(jsonPath("$[3].eventName", is("FewVotes")))
+            .andReturn().getResponse().getHeader("Next-Cursor");
+    mockMvc.perform(get("/rs/list").param("size", "2").param("cursor", cursor))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].eventName", is("ManyVotes")));
+  }
+
+  @Test
+  public void shouldGetErrorWhenCursorInvalid() throws Exception {
+    mockMvc
+        .perform(get("/rs/list").param("size", "2").param("cursor", "not-a-cursor"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid cursor")));
+  }
+
+  @Test
+  public void shouldGetErrorWhenRangeInvalid() throws Exception {
+    mockMvc
+        .perform(get("/rs/list?start=3&end=2"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error", is("invalid request param")));
+  }
+
   @Test
   public void shouldAddRsEventWhenUserExist() throws Exception {
 
@@ -151,11 +433,11 @@ class RsControllerTest {
         .andExpect(status().isCreated());
     List<RsEventDto> all = rsEventRepository.findAll();
     assertNotNull(all);
-    assertEquals(all.size(), 1);
-    assertEquals(all.get(0).getEventName(), "猪肉涨价了");
-    assertEquals(all.get(0).getKeyword(), "经济");
-    assertEquals(all.get(0).getUser().getUserName(), save.getUserName());
-    assertEquals(all.get(0).getUser().getAge(), save.getAge());
+    assertEquals(all.size(), 4);
+    assertEquals(all.get(3).getEventName(), "猪肉涨价了");
+    assertEquals(all.get(3).getKeyword(), "经济");
+    assertEquals(all.get(3).getUser().getUserName(), save.getUserName());
+    assertEquals(all.get(3).getUser().getAge(), save.getAge());
   }
 
   @Test
@@ -186,11 +468,58 @@ class RsControllerTest {
 
     UserDto userDto = userRepository.findById(save.getId()).get();
     RsEventDto newRsEvent = rsEventRepository.findById(rsEventDto.getId()).get();
-    assertEquals(userDto.getVoteNum(), 9);
+    assertEquals(userDto.getVoteNum(), 19);
     assertEquals(newRsEvent.getVoteNum(), 1);
     List<VoteDto> voteDtos =  voteRepository.findAll();
     assertEquals(voteDtos.size(), 1);
     assertEquals(voteDtos.get(0).getNum(), 1);
+    mockMvc.perform(get("/rs/4")).andExpect(jsonPath("$.voteNum", is(1)));
+  }
+
+  @Test
+  public void shouldNotVoteWhenVoteNumNotEnough() throws Exception {
+    RsEventDto rsEventDto = rsEventRepository.save(RsEventDto.builder().keyword("无分类")
+            .eventName("第一条事件").user(userDto).build());
+
+    String jsonValue =
+        String.format(
+            "{\"userId\":%d,\"time\":\"%s\",\"voteNum\":21}",
+            userDto.getId(), LocalDateTime.now().toString());
+    assertThrows(Exception.class, () -> mockMvc
+        .perform(
+            post("/rs/vote/{id}", rsEventDto.getId())
+                .content(jsonValue)
+                .contentType(MediaType.APPLICATION_JSON)));
+
+    assertEquals(userRepository.findById(userDto.getId()).get().getVoteNum(), 20);
+    assertEquals(rsEventRepository.findById(rsEventDto.getId()).get().getVoteNum(), 0);
+    assertEquals(voteRepository.findAll().size(), 0);
+  }
+
+  @Test
+  public void shouldVoteInBatch() throws Exception {
+    List<RsEventDto> rsEvents = rsEventRepository.findAll();
+    String jsonValue = String.format(
+        "[{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":5},"
+            + "{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":10},"
+            + "{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":10},"
+            + "{\"userId\":%d,\"rsEventId\":%d,\"voteNum\":1}]",
+        userDto.getId(), rsEvents.get(0).getId(), userDto.getId(), rsEvents.get(1).getId(),
+        userDto.getId(), rsEvents.get(0).getId(), userDto.getId(), rsEvents.get(2).getId() + 100);
+    mockMvc
+        .perform(post("/rs/votes").content(jsonValue).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(4)))
+        .andExpect(jsonPath("$[0].success", is(true)))
+        .andExpect(jsonPath("$[1].success", is(true)))
+        .andExpect(jsonPath("$[2].error", is("vote num not enough")))
+        .andExpect(jsonPath("$[3].error", is("rs event not exist")));
+
+    assertEquals(userRepository.findById(userDto.getId()).get().getVoteNum(), 5);
+    assertEquals(rsEventRepository.findById(rsEvents.get(0).getId()).get().getVoteNum(), 15);
+    assertEquals(rsEventRepository.findById(rsEvents.get(1).getId()).get().getVoteNum(), 20);
+    assertEquals(voteRepository.findAll().size(), 2);
+    mockMvc.perform(get("/rs/2")).andExpect(jsonPath("$.voteNum", is(20)));
   }
 
   @Test
@@ -1,11 +1,18 @@
 package com.thoughtworks.rslist.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import com.thoughtworks.rslist.domain.User;
+import com.thoughtworks.rslist.domain.UserCacheStats;
 import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.TradeDto;
 import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,11 +21,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.fail;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -28,10 +42,15 @@ class UserControllerTest {
   ObjectMapper objectMapper;
   @Autowired UserRepository userRepository;
   @Autowired RsEventRepository rsEventRepository;
+  @Autowired UserService userService;
+  @Autowired VoteRepository voteRepository;
+  @Autowired TradeRepository tradeRepository;
 
   @BeforeEach
   void setUp() {
     objectMapper = new ObjectMapper();
+    tradeRepository.deleteAll();
+    voteRepository.deleteAll();
     rsEventRepository.deleteAll();
     userRepository.deleteAll();
   }
@@ -119,9 +138,90 @@ class UserControllerTest {
         RsEventDto.builder().keyword("keyword").eventName("eventName").user(save).build();
     rsEventRepository.save(rsEventDto);
 
-    mockMvc.perform(delete("/user/{id}", save.getId())).andExpect(status().isOk());
+    String location = mockMvc.perform(delete("/user/{id}", save.getId()))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.userId", is(save.getId())))
+        .andReturn().getResponse().getHeader("Location");
+    awaitDeletion(location);
 
     assertEquals(userRepository.findAll().size(), 0);
     assertEquals(rsEventRepository.findAll().size(), 0);
   }
+
+  @Test
+  public void shouldDeleteUserWithVotesAndTradesOnItsEvents() throws Exception {
+    UserDto deleted = userRepository.save(UserDto.builder().voteNum(10).phone("18888888888").gender("female")
+        .email("a@b.com").age(19).userName("idolice").build());
+    UserDto kept = userRepository.save(UserDto.builder().voteNum(10).phone("18888888888").gender("male")
+        .email("b@b.com").age(20).userName("kept").build());
+    RsEventDto deletedEvent = rsEventRepository.save(
+        RsEventDto.builder().keyword("keyword").eventName("deleted").user(deleted).build());
+    RsEventDto keptEvent = rsEventRepository.save(
+        RsEventDto.builder().keyword("keyword").eventName("kept").user(kept).build());
+    voteRepository.save(VoteDto.builder().num(1).localDateTime(LocalDateTime.now()).user(kept)
+        .rsEvent(deletedEvent).build());
+    voteRepository.save(VoteDto.builder().num(1).localDateTime(LocalDateTime.now()).user(deleted)
+        .rsEvent(keptEvent).build());
+    VoteDto keptVote = voteRepository.save(VoteDto.builder().num(1).localDateTime(LocalDateTime.now()).user(kept)
+        .rsEvent(keptEvent).build());
+    tradeRepository.save(TradeDto.builder().amount(10).rankNum(1).user(kept).rsEvent(deletedEvent).build());
+
+    String location = mockMvc.perform(delete("/user/{id}", deleted.getId()))
+        .andExpect(status().isAccepted())
+        .andReturn().getResponse().getHeader("Location");
+    awaitDeletion(location);
+
+    mockMvc.perform(get(location))
+        .andExpect(jsonPath("$.rsEventCount", is(1)));
+    assertEquals(userRepository.findAll().size(), 1);
+    assertEquals(rsEventRepository.findAll().get(0).getId(), keptEvent.getId());
+    assertEquals(voteRepository.findAll().size(), 1);
+    assertEquals(voteRepository.findAll().get(0).getId(), keptVote.getId());
+    assertEquals(tradeRepository.count(), 0L);
+    mockMvc.perform(get("/rs/list"))
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].eventName", is("kept")));
+  }
+
+  @Test
+  public void shouldNotDeleteUserWhenUserNotExist() throws Exception {
+    mockMvc.perform(delete("/user/{id}", 100)).andExpect(status().isNotFound());
+    mockMvc.perform(get("/user/deletion/{id}", "unknown")).andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void shouldServeRepeatedUserLookupsFromCacheUntilDeleted() throws Exception {
+    UserDto save = userRepository.save(UserDto.builder().voteNum(10).phone("18888888888").gender("female")
+        .email("a@b.com").age(19).userName("idolice").build());
+    String event = "{\"eventName\":\"event\",\"keyword\":\"keyword\",\"userId\":" + save.getId() + "}";
+    UserCacheStats before = userService.cacheStats();
+
+    mockMvc.perform(post("/rs/event").content(event).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isCreated());
+    mockMvc.perform(post("/rs/event").content(event).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isCreated());
+    mockMvc.perform(get("/user/cache"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.missCount", is((int) before.getMissCount() + 1)))
+        .andExpect(jsonPath("$.hitCount", is((int) before.getHitCount() + 1)));
+
+    awaitDeletion(mockMvc.perform(delete("/user/{id}", save.getId()))
+        .andExpect(status().isAccepted())
+        .andReturn().getResponse().getHeader("Location"));
+    mockMvc.perform(post("/rs/event").content(event).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
+  private void awaitDeletion(String location) throws Exception {
+    for (int i = 0; i < 100; i++) {
+      String status = JsonPath.read(mockMvc.perform(get(location)).andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString(), "$.status");
+      if ("DONE".equals(status)) {
+        return;
+      }
+      assertNotEquals(status, "FAILED");
+      Thread.sleep(50);
+    }
+    fail("user deletion did not finish");
+  }
 }
@@ -1,25 +1,33 @@
 package com.thoughtworks.rslist.api;
 
+import com.thoughtworks.rslist.domain.Vote;
 import com.thoughtworks.rslist.dto.RsEventDto;
 import com.thoughtworks.rslist.dto.UserDto;
 import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
+import com.thoughtworks.rslist.service.RsService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -31,6 +39,10 @@ class VoteControllerTest {
     RsEventRepository rsEventRepository;
     @Autowired
     VoteRepository voteRepository;
+    @Autowired
+    VoteRollupRepository voteRollupRepository;
+    @Autowired
+    RsService rsService;
     UserDto userDto;
     RsEventDto rsEventDto;
 
@@ -49,6 +61,7 @@ class VoteControllerTest {
 
     @AfterEach
     void tearDown() {
+        voteRollupRepository.deleteAll();
         voteRepository.deleteAll();
         rsEventRepository.deleteAll();
         userRepository.deleteAll();
@@ -107,4 +120,77 @@ class VoteControllerTest {
 
 
     }
+
+    @Test
+    public void shouldGetVoteRecordByCursorWithinTimeRange() throws Exception {
+      LocalDateTime base = LocalDateTime.of(2020, 1, 1, 0, 0);
+      for (int i = 0; i < 5; i++) {
+        voteRepository.save(VoteDto.builder().user(userDto).rsEvent(rsEventDto).localDateTime(base.plusHours(i))
+                .num(11 + i).build());
+      }
+
+      String cursor = mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("from", "2020-01-01T01:00:00")
+              .param("to", "2020-01-02T00:00:00").param("size", "2"))
+              .andExpect(jsonPath("$", hasSize(2)))
+              .andExpect(jsonPath("$[0].voteNum", is(12)))
+              .andExpect(jsonPath("$[1].voteNum", is(13)))
+              .andReturn().getResponse().getHeader("Next-Cursor");
+      cursor = mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("to", "2020-01-02T00:00:00")
+              .param("size", "2").param("cursor", cursor))
+              .andExpect(jsonPath("$", hasSize(2)))
+              .andExpect(jsonPath("$[0].voteNum", is(14)))
+              .andExpect(jsonPath("$[1].voteNum", is(15)))
+              .andReturn().getResponse().getHeader("Next-Cursor");
+      mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("to", "2020-01-02T00:00:00")
+              .param("size", "2").param("cursor", cursor))
+              .andExpect(jsonPath("$", hasSize(0)))
+              .andExpect(header().doesNotExist("Next-Cursor"));
+    }
+
+    @Test
+    public void shouldGetErrorWhenVoteRecordPageSizeInvalid() throws Exception {
+      mockMvc.perform(get("/voteRecord").param("userId", String.valueOf(userDto.getId()))
+              .param("rsEventId", String.valueOf(rsEventDto.getId())).param("size", "1000"))
+              .andExpect(status().isBadRequest())
+              .andExpect(jsonPath("$.error", is("invalid request param")));
+    }
+
+    @Test
+    public void shouldRollVotesUpByHour() throws Exception {
+      String[][] votes = {{"2020-01-01T10:05:00", "1"}, {"2020-01-01T10:40:00", "2"}, {"2020-01-01T11:10:00", "3"}};
+      for (String[] vote : votes) {
+        rsService.voteAll(Collections.singletonList(Vote.builder().userId(userDto.getId()).rsEventId(rsEventDto.getId())
+                .time(LocalDateTime.parse(vote[0])).voteNum(Integer.parseInt(vote[1])).build()));
+      }
+
+      mockMvc.perform(get("/voteRollup").param("rsEventId", String.valueOf(rsEventDto.getId()))
+              .param("from", "2020-01-01T10:30:00").param("to", "2020-01-02T00:00:00"))
+              .andExpect(jsonPath("$", hasSize(2)))
+              .andExpect(jsonPath("$[0].bucket", is("2020-01-01T10:00:00")))
+              .andExpect(jsonPath("$[0].voteNum", is(3)))
+              .andExpect(jsonPath("$[0].voteCount", is(2)))
+              .andExpect(jsonPath("$[1].bucket", is("2020-01-01T11:00:00")))
+              .andExpect(jsonPath("$[1].voteNum", is(3)))
+              .andExpect(jsonPath("$[1].voteCount", is(1)));
+    }
+
+    @Test
+    public void shouldRollVoteUpAtServerTimeWhateverClientSends() throws Exception {
+      mockMvc.perform(post("/rs/vote/{id}", rsEventDto.getId())
+              .content(String.format("{\"userId\":%d,\"time\":\"2030-01-01T10:05:00\",\"voteNum\":1}", userDto.getId()))
+              .contentType(MediaType.APPLICATION_JSON))
+              .andExpect(status().isOk());
+
+      mockMvc.perform(get("/voteRollup").param("rsEventId", String.valueOf(rsEventDto.getId()))
+              .param("from", "2029-12-31T00:00:00").param("to", "2030-01-02T00:00:00"))
+              .andExpect(jsonPath("$", hasSize(0)));
+      mockMvc.perform(get("/voteRollup").param("rsEventId", String.valueOf(rsEventDto.getId()))
+              .param("from", LocalDateTime.now().minusHours(2).toString())
+              .param("to", LocalDateTime.now().plusHours(1).toString()))
+              .andExpect(jsonPath("$", hasSize(1)))
+              .andExpect(jsonPath("$[0].voteNum", is(1)));
+    }
 }
@@ -0,0 +1,94 @@
+package com.thoughtworks.rslist.metrics;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
+import com.thoughtworks.rslist.service.RsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsEndpointTest {
+  @Autowired MockMvc mockMvc;
+  @Autowired UserRepository userRepository;
+  @Autowired RsEventRepository rsEventRepository;
+  @Autowired VoteRepository voteRepository;
+  @Autowired VoteRollupRepository voteRollupRepository;
+  @Autowired RsService rsService;
+
+  @BeforeEach
+  void setUp() {
+    voteRollupRepository.deleteAll();
+    voteRepository.deleteAll();
+    rsEventRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  public void shouldReportLatencyAndStatementsOfVote() throws Exception {
+    UserDto userDto = userRepository.save(UserDto.builder().userName("Mike").age(20).phone("13386688553")
+        .email("mike@thoughtworks.com").gender("male").voteNum(20).build());
+    RsEventDto rsEventDto = rsEventRepository.save(RsEventDto.builder().eventName("FirstEvent")
+        .keyword("Economy").user(userDto).build());
+    String vote = String.format("{\"userId\":%d,\"voteNum\":1}", userDto.getId());
+    mockMvc.perform(post("/rs/vote/{id}", rsEventDto.getId()).content(vote).contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/actuator/metrics/rs.service.calls")
+        .param("tag", "class:RsService").param("tag", "method:vote"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value", hasItem(greaterThanOrEqualTo(1.0))));
+    mockMvc.perform(get("/actuator/metrics/rs.repository.calls")
+        .param("tag", "class:UserRepository").param("tag", "method:debitVoteNum"))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/actuator/metrics/rs.sql.statements")
+        .param("tag", "method:POST").param("tag", "uri:/rs/vote/{id}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[?(@.statistic == 'TOTAL')].value", hasItem(greaterThanOrEqualTo(1.0))));
+    mockMvc.perform(get("/actuator/metrics/hibernate.statements"))
+        .andExpect(status().isOk());
+  }
+
+  @Test
+  public void shouldCountJdbcTemplateStatementsOfVoteAll() {
+    UserDto userDto = userRepository.save(UserDto.builder().userName("Mike").age(20).phone("13386688553")
+        .email("mike@thoughtworks.com").gender("male").voteNum(20).build());
+    RsEventDto first = rsEventRepository.save(RsEventDto.builder().eventName("FirstEvent")
+        .keyword("Economy").user(userDto).build());
+    RsEventDto second = rsEventRepository.save(RsEventDto.builder().eventName("SecondEvent")
+        .keyword("Economy").user(userDto).build());
+    // the first vote takes a block of vote ids, the counted one does not hit the sequence
+    rsService.voteAll(Collections.singletonList(
+        Vote.builder().userId(userDto.getId()).rsEventId(first.getId()).voteNum(1).build()));
+
+    SqlStatementCounter.reset();
+    rsService.voteAll(Arrays.asList(
+        Vote.builder().userId(userDto.getId()).rsEventId(first.getId()).voteNum(1).build(),
+        Vote.builder().userId(userDto.getId()).rsEventId(second.getId()).voteNum(2).build()));
+
+    // events and users read, vote rows inserted in one batch by Hibernate; event counts, user
+    // balances and rollups as one JdbcTemplate batch each
+    assertEquals(SqlStatementCounter.count(), 6);
+  }
+}
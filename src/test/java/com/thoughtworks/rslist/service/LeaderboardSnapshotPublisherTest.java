@@ -0,0 +1,69 @@
+package com.thoughtworks.rslist.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeaderboardSnapshotPublisherTest {
+
+  RsEventLeaderboard rsEventLeaderboard;
+
+  ObjectMapper objectMapper;
+
+  LeaderboardSnapshotPublisher leaderboardSnapshotPublisher;
+
+  @BeforeEach
+  void setUp() {
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventLeaderboard.reload(Arrays.asList(event(1, 0, 5), event(2, 1, 0), event(3, 0, 9)));
+    objectMapper = new ObjectMapper();
+    leaderboardSnapshotPublisher =
+        new LeaderboardSnapshotPublisher(rsEventLeaderboard, objectMapper, true, Arrays.asList(2, 10));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    leaderboardSnapshotPublisher.stop();
+  }
+
+  @Test
+  void shouldServeRenderedListWhileVersionIsCurrent() throws Exception {
+    leaderboardSnapshotPublisher.rebuild();
+    String version = rsEventLeaderboard.version();
+
+    assertArrayEquals(leaderboardSnapshotPublisher.findAll(version).get(), render(rsEventLeaderboard.range(1, 3)));
+    assertArrayEquals(leaderboardSnapshotPublisher.findRange(version, 1, 2).get(),
+        render(rsEventLeaderboard.range(1, 2)));
+    assertArrayEquals(leaderboardSnapshotPublisher.findRange(version, 1, 10).get(),
+        render(rsEventLeaderboard.range(1, 10)));
+    assertEquals(leaderboardSnapshotPublisher.findRange(version, 2, 2).isPresent(), false);
+    assertEquals(leaderboardSnapshotPublisher.findRange(version, 1, 3).isPresent(), false);
+  }
+
+  @Test
+  void shouldNotServeSnapshotAfterLeaderboardChanged() {
+    leaderboardSnapshotPublisher.rebuild();
+    rsEventLeaderboard.addVotes(1, 10, LocalDateTime.now());
+
+    assertEquals(leaderboardSnapshotPublisher.findAll(rsEventLeaderboard.version()).isPresent(), false);
+  }
+
+  private byte[] render(List<RankedEvent> rankedEvents) throws Exception {
+    return objectMapper.writeValueAsBytes(
+        rankedEvents.stream().map(RankedEvent::toRsEvent).collect(Collectors.toList()));
+  }
+
+  private RankedEvent event(int id, int rankNum, int voteNum) {
+    return RankedEvent.builder().id(id).eventName("event " + id).keyword("keyword")
+        .rankNum(rankNum).voteNum(voteNum).build();
+  }
+}
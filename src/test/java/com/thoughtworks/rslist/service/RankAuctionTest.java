@@ -0,0 +1,81 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class RankAuctionTest {
+
+  RankAuction rankAuction;
+
+  @Mock
+  RsEventRepository rsEventRepository;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    rankAuction = new RankAuction(rsEventRepository);
+    when(rsEventRepository.findByRankNum(1))
+            .thenReturn(Optional.of(RsEventDto.builder().id(7).rankNum(1).amount(10).build()));
+  }
+
+  @Test
+  void shouldAcceptHigherBidAndRejectLowerBid() {
+    assertTrue(rankAuction.bid(1, 20, null, null).isPresent());
+    assertEquals(rankAuction.bid(1, 15, null, null).isPresent(), false);
+    assertEquals(rankAuction.bid(2, 15, null, null).isPresent(), false);
+    verify(rsEventRepository, times(1)).findByRankNum(1);
+  }
+
+  @Test
+  void shouldOnlyWriteTheLatestWinner() {
+    RankAuction.Bid first = rankAuction.bid(1, 20, null, null).get();
+    RankAuction.Bid second = rankAuction.bid(1, 30, null, null).get();
+    List<Integer> written = new CopyOnWriteArrayList<>();
+
+    assertEquals(rankAuction.settle(first, bid -> written.add(bid.getAmount())), false);
+    assertEquals(rankAuction.settle(second, bid -> written.add(bid.getAmount())), true);
+
+    assertEquals(written.size(), 1);
+    assertEquals(written.get(0), 30);
+    assertEquals(second.getRsEventId(), 7);
+  }
+
+  @Test
+  void shouldKeepHighestBidUnderContention() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Integer> written = new CopyOnWriteArrayList<>();
+    AtomicInteger winners = new AtomicInteger();
+    for (int amount = 11; amount <= 2000; amount++) {
+      int bidAmount = amount % 2 == 0 ? amount : 2011 - amount;
+      executor.execute(() -> rankAuction.bid(1, bidAmount, null, null)
+              .filter(bid -> rankAuction.settle(bid, winner -> written.add(winner.getAmount())))
+              .ifPresent(bid -> winners.incrementAndGet()));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals(written.get(written.size() - 1), 2000);
+    for (int i = 1; i < written.size(); i++) {
+      assertTrue(written.get(i - 1) <= written.get(i));
+    }
+    assertEquals(winners.get(), written.size());
+  }
+}
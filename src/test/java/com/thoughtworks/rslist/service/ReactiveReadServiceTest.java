@@ -0,0 +1,75 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.dto.VoteDto;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class ReactiveReadServiceTest {
+  static final LocalDateTime FROM = LocalDateTime.of(2020, 5, 1, 0, 0);
+  static final LocalDateTime TO = LocalDateTime.of(2020, 6, 1, 0, 0);
+
+  ReactiveReadService reactiveReadService;
+
+  @Mock
+  VoteRepository voteRepository;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    reactiveReadService = new ReactiveReadService(new RsEventLeaderboard(), voteRepository, 2, 10, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    reactiveReadService.stop();
+  }
+
+  @Test
+  void shouldReadVotesPageByPageFromLastCursor() {
+    when(voteRepository.findPageAfter(eq(1), eq(2), eq(FROM), eq(0), eq(TO), any()))
+        .thenReturn(Arrays.asList(vote(10, 1), vote(11, 2)));
+    when(voteRepository.findPageAfter(eq(1), eq(2), eq(FROM.plusMinutes(2)), eq(11), eq(TO), any()))
+        .thenReturn(Collections.singletonList(vote(12, 3)));
+
+    List<Vote> votes = reactiveReadService.findVotes(1, 2, FROM, TO).collectList().block();
+
+    assertEquals(votes.stream().map(Vote::getVoteNum).collect(Collectors.toList()), Arrays.asList(1, 2, 3));
+    verify(voteRepository, times(2)).findPageAfter(eq(1), eq(2), any(), any(Integer.class), eq(TO), any());
+  }
+
+  @Test
+  void shouldNotReadPastWhatIsConsumed() {
+    when(voteRepository.findPageAfter(eq(1), eq(2), eq(FROM), eq(0), eq(TO), any()))
+        .thenReturn(Arrays.asList(vote(10, 1), vote(11, 2)));
+
+    List<Vote> votes = reactiveReadService.findVotes(1, 2, FROM, TO).take(2).collectList().block();
+
+    assertEquals(votes.size(), 2);
+    verify(voteRepository, times(1)).findPageAfter(eq(1), eq(2), any(), any(Integer.class), eq(TO), any());
+  }
+
+  private VoteDto vote(int id, int num) {
+    return VoteDto.builder().id(id).num(num).localDateTime(FROM.plusMinutes(num))
+        .user(UserDto.builder().id(1).build()).rsEvent(RsEventDto.builder().id(2).build()).build();
+  }
+}
@@ -0,0 +1,142 @@
+package com.thoughtworks.rslist.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RsEventLeaderboardTest {
+
+  RsEventLeaderboard rsEventLeaderboard;
+
+  @BeforeEach
+  void setUp() {
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventLeaderboard.reload(Arrays.asList(
+            event(1, 0, 5),
+            event(2, 2, 0),
+            event(3, 0, 9),
+            event(4, 1, 0),
+            event(5, 0, 5)));
+  }
+
+  @Test
+  void shouldOrderPurchasedRankFirstThenVoteNum() {
+    assertEquals(ids(rsEventLeaderboard.all()), Arrays.asList(4, 2, 3, 1, 5));
+  }
+
+  @Test
+  void shouldGetRangeBetween() {
+    assertEquals(ids(rsEventLeaderboard.range(2, 4)), Arrays.asList(2, 3, 1));
+    assertEquals(ids(rsEventLeaderboard.range(4, 10)), Arrays.asList(1, 5));
+    assertEquals(rsEventLeaderboard.range(6, 8).size(), 0);
+  }
+
+  @Test
+  void shouldGetEventAtPosition() {
+    assertEquals(rsEventLeaderboard.get(1).get().getId(), 4);
+    assertEquals(rsEventLeaderboard.get(5).get().getId(), 5);
+    assertEquals(rsEventLeaderboard.get(0).isPresent(), false);
+    assertEquals(rsEventLeaderboard.get(6).isPresent(), false);
+  }
+
+  @Test
+  void shouldReorderWhenEventUpdated() {
+    rsEventLeaderboard.put(event(5, 0, 10));
+
+    assertEquals(ids(rsEventLeaderboard.all()), Arrays.asList(4, 2, 5, 3, 1));
+    assertEquals(rsEventLeaderboard.size(), 5);
+  }
+
+  @Test
+  void shouldChangeVersionOnWritesOnly() {
+    String version = rsEventLeaderboard.version();
+    rsEventLeaderboard.all();
+    rsEventLeaderboard.remove(6);
+    assertEquals(rsEventLeaderboard.version(), version);
+
+    rsEventLeaderboard.addVotes(1, 1, LocalDateTime.now());
+    assertNotEquals(rsEventLeaderboard.version(), version);
+  }
+
+  @Test
+  void shouldRemoveEvent() {
+    rsEventLeaderboard.remove(2);
+    rsEventLeaderboard.remove(100);
+
+    assertEquals(ids(rsEventLeaderboard.all()), Arrays.asList(4, 3, 1, 5));
+  }
+
+  @Test
+  void shouldKeepOrderForManyEvents() {
+    for (int id = 6; id <= 2000; id++) {
+      rsEventLeaderboard.put(event(id, 0, id % 37));
+    }
+    List<RankedEvent> all = rsEventLeaderboard.all();
+    for (int i = 1; i < all.size(); i++) {
+      assertEquals(RankedEvent.RANKING.compare(all.get(i - 1), all.get(i)) < 0, true);
+    }
+    assertEquals(rsEventLeaderboard.range(1000, 1009), all.subList(999, 1009));
+  }
+
+  @Test
+  void shouldRankRecentVotesHotterThanOldTotals() {
+    LocalDateTime now = LocalDateTime.of(2021, 6, 1, 12, 0);
+    rsEventLeaderboard.addVotes(3, 100, now.minusDays(10));
+    rsEventLeaderboard.addVotes(1, 10, now.minusHours(1));
+    rsEventLeaderboard.addVotes(5, 4, now);
+    rsEventLeaderboard.addVotes(5, 4, now);
+
+    assertEquals(ids(rsEventLeaderboard.hotAll()), Arrays.asList(1, 5, 3, 4, 2));
+    assertEquals(ids(rsEventLeaderboard.hotRange(2, 3)), Arrays.asList(5, 3));
+    assertEquals(rsEventLeaderboard.find(3).get().getVoteNum(), 109);
+  }
+
+  @Test
+  void shouldReloadHotScores() {
+    LocalDateTime now = LocalDateTime.of(2021, 6, 1, 12, 0);
+    Map<Integer, Double> hotScores = new HashMap<>();
+    hotScores.put(2, rsEventLeaderboard.hotScore(3, now));
+    hotScores.put(4, RsEventLeaderboard.combine(
+            rsEventLeaderboard.hotScore(2, now), rsEventLeaderboard.hotScore(2, now)));
+
+    rsEventLeaderboard.reload(rsEventLeaderboard.all(), hotScores);
+    rsEventLeaderboard.remove(5);
+
+    assertEquals(ids(rsEventLeaderboard.hotAll()), Arrays.asList(4, 2, 3, 1));
+  }
+
+  @Test
+  void shouldKeepKeywordRankingsInStep() {
+    rsEventLeaderboard.put(event(1, 0, 5).toBuilder().keyword("sports").build());
+    rsEventLeaderboard.put(event(6, 0, 7).toBuilder().keyword("sports").build());
+    rsEventLeaderboard.addVotes(1, 3, LocalDateTime.now());
+
+    assertEquals(ids(rsEventLeaderboard.keywordAll("sports")), Arrays.asList(1, 6));
+    assertEquals(ids(rsEventLeaderboard.keywordRange("keyword", 2, 10)), Arrays.asList(2, 3, 5));
+    assertEquals(ids(rsEventLeaderboard.keywordRange("sports", 2, 2)), Arrays.asList(6));
+
+    rsEventLeaderboard.remove(1);
+    rsEventLeaderboard.put(event(6, 3, 7));
+
+    assertEquals(rsEventLeaderboard.keywordAll("sports").size(), 0);
+    assertEquals(ids(rsEventLeaderboard.keywordAll("keyword")), Arrays.asList(4, 2, 6, 3, 5));
+  }
+
+  private RankedEvent event(int id, int rankNum, int voteNum) {
+    return RankedEvent.builder().id(id).eventName("event " + id).keyword("keyword")
+            .rankNum(rankNum).voteNum(voteNum).build();
+  }
+
+  private List<Integer> ids(List<RankedEvent> rankedEvents) {
+    return rankedEvents.stream().map(RankedEvent::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,104 @@
+package com.thoughtworks.rslist.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RsEventSearchIndexTest {
+
+  RsEventLeaderboard rsEventLeaderboard;
+
+  RsEventSearchIndex rsEventSearchIndex;
+
+  @BeforeEach
+  void setUp() {
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventSearchIndex = new RsEventSearchIndex(rsEventLeaderboard);
+    List<RankedEvent> rankedEvents = Arrays.asList(
+        event(1, "Stock market crash", "Economy", 5),
+        event(2, "Stocks rally again", "Economy", 9),
+        event(3, "New election law", "Politics", 7),
+        event(4, "第一条热搜事件", "无分类", 3));
+    rsEventLeaderboard.reload(rankedEvents);
+    rsEventSearchIndex.reload(rankedEvents);
+  }
+
+  @Test
+  void shouldMatchWordPrefixesRankedByVotes() {
+    assertEquals(ids(rsEventSearchIndex.search("stock", 10)), Arrays.asList(2, 1));
+    assertEquals(ids(rsEventSearchIndex.search("STOCK eco", 10)), Arrays.asList(2, 1));
+    assertEquals(ids(rsEventSearchIndex.search("stock crash", 10)), Arrays.asList(1));
+    assertEquals(ids(rsEventSearchIndex.search("stock", 1)), Arrays.asList(2));
+    assertEquals(rsEventSearchIndex.search("market law", 10).size(), 0);
+
+    rsEventLeaderboard.addVotes(1, 10, LocalDateTime.now());
+
+    assertEquals(ids(rsEventSearchIndex.search("stock", 10)), Arrays.asList(1, 2));
+  }
+
+  @Test
+  void shouldMatchCjkTextAnywhereInRun() {
+    assertEquals(ids(rsEventSearchIndex.search("热搜", 10)), Arrays.asList(4));
+    assertEquals(ids(rsEventSearchIndex.search("分类", 10)), Arrays.asList(4));
+    assertEquals(rsEventSearchIndex.search("热门", 10).size(), 0);
+  }
+
+  @Test
+  void shouldReindexChangedTextAndDropRemovedEvents() {
+    RankedEvent bought = event(3, "Football final", "Sports", 7);
+    rsEventLeaderboard.put(bought);
+    rsEventSearchIndex.index(bought);
+    rsEventSearchIndex.remove(1);
+
+    assertEquals(rsEventSearchIndex.search("election", 10).size(), 0);
+    assertEquals(ids(rsEventSearchIndex.search("foot", 10)), Arrays.asList(3));
+    assertEquals(ids(rsEventSearchIndex.search("stock", 10)), Arrays.asList(2));
+
+    rsEventSearchIndex.remove(2);
+    rsEventSearchIndex.remove(3);
+    rsEventSearchIndex.remove(4);
+    assertEquals(rsEventSearchIndex.termCount(), 0);
+  }
+
+  @Test
+  void shouldFindRareCombinationOfCommonTermsBelowTheScannedRanking() {
+    List<RankedEvent> rankedEvents = new ArrayList<>();
+    for (int i = 0; i < RsEventSearchIndex.MAX_CANDIDATES + 1; i++) {
+      rankedEvents.add(event(100 + 2 * i, "Red team", "Sports", 1000));
+      rankedEvents.add(event(101 + 2 * i, "Blue team", "Sports", 1000));
+    }
+    rankedEvents.add(event(1, "Red and blue", "Sports", 2));
+    rankedEvents.add(event(2, "Blue over red", "Sports", 1));
+    rsEventLeaderboard.reload(rankedEvents);
+    rsEventSearchIndex.reload(rankedEvents);
+
+    assertEquals(ids(rsEventSearchIndex.search("red blue", 10)), Arrays.asList(1, 2));
+    assertEquals(ids(rsEventSearchIndex.search("blue team", 2)), Arrays.asList(101, 103));
+  }
+
+  @Test
+  void shouldSplitWordsAndSuffixCjkRuns() {
+    assertEquals(RsEventSearchIndex.terms("Hot-News 2020", true),
+        new HashSet<>(Arrays.asList("hot", "news", "2020")));
+    assertEquals(RsEventSearchIndex.terms("AI热搜", true),
+        new HashSet<>(Arrays.asList("ai", "热搜", "搜")));
+    assertEquals(RsEventSearchIndex.terms("AI热搜", false),
+        new HashSet<>(Arrays.asList("ai", "热搜")));
+  }
+
+  private RankedEvent event(int id, String eventName, String keyword, int voteNum) {
+    return RankedEvent.builder().id(id).eventName(eventName).keyword(keyword).voteNum(voteNum).build();
+  }
+
+  private List<Integer> ids(List<RankedEvent> rankedEvents) {
+    return rankedEvents.stream().map(RankedEvent::getId).collect(Collectors.toList());
+  }
+}
@@ -3,6 +3,7 @@ package com.thoughtworks.rslist.service;
 import com.thoughtworks.rslist.domain.RsEvent;
 import com.thoughtworks.rslist.domain.Trade;
 import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
 import com.thoughtworks.rslist.dto.RsEventDto;
 import com.thoughtworks.rslist.dto.TradeDto;
 import com.thoughtworks.rslist.dto.UserDto;
@@ -10,18 +11,34 @@ import com.thoughtworks.rslist.dto.VoteDto;
 import com.thoughtworks.rslist.repository.RsEventRepository;
 import com.thoughtworks.rslist.repository.TradeRepository;
 import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteJdbcRepository;
 import com.thoughtworks.rslist.repository.VoteRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -41,6 +58,20 @@ class RsServiceTest {
   @Mock
   TradeRepository tradeRepository;
 
+  @Mock
+  VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+  @Mock
+  TradeLedger tradeLedger;
+
+  @Mock
+  VoteJdbcRepository voteJdbcRepository;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  RsEventLeaderboard rsEventLeaderboard;
+
   LocalDateTime localDateTime;
 
   Vote vote;
@@ -50,7 +81,11 @@ class RsServiceTest {
   @BeforeEach
   void setUp() {
     initMocks(this);
-    rsService = new RsService(rsEventRepository, userRepository, voteRepository, tradeRepository);
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsService = new RsService(rsEventRepository, userRepository, voteRepository, tradeRepository,
+            voteWriteBehindBuffer, rsEventLeaderboard, new RankAuction(rsEventRepository), tradeLedger,
+            voteJdbcRepository, new UserService(rsEventRepository, userRepository, voteRepository, 100),
+            transactionManager);
     localDateTime = LocalDateTime.now();
     vote = Vote.builder().rsEventId(1).userId(1)
             .voteNum(3).time(localDateTime).build();
@@ -66,23 +101,35 @@ class RsServiceTest {
     RsEventDto rsEventPO = RsEventDto.builder().id(1).voteNum(1)
             .keyword("FirstEvent").eventName("Economy")
             .user(userPO).build();
+    rsEventLeaderboard.put(RankedEvent.from(rsEventPO));
 
-    when(userRepository.findById(anyInt())).thenReturn(Optional.of(userPO));
-    when(rsEventRepository.findById(anyInt())).thenReturn(Optional.of(rsEventPO));
+    when(rsEventRepository.increaseVoteNum(1, 3)).thenReturn(1);
+    when(userRepository.debitVoteNum(1, 3)).thenReturn(1);
+    when(rsEventRepository.getOne(1)).thenReturn(rsEventPO);
+    when(userRepository.getOne(1)).thenReturn(userPO);
 
     rsService.vote(vote, 1);
 
-    verify(userRepository).save(userPO);
-    verify(rsEventRepository).save(rsEventPO);
     verify(voteRepository).save(VoteDto.builder()
             .localDateTime(localDateTime)
             .rsEvent(rsEventPO)
             .user(userPO)
             .num(3)
             .build());
+    verify(userRepository, never()).findById(anyInt());
+    verify(rsEventRepository, never()).findById(anyInt());
+    assertEquals(rsEventLeaderboard.find(1).get().getVoteNum(), 4);
+  }
 
-    assertEquals(userPO.getVoteNum(), 2);
-    assertEquals(rsEventPO.getVoteNum(), 4);
+  @Test
+  void shouldThrowExceptionWhenVoteNumNotEnough() {
+    when(rsEventRepository.increaseVoteNum(1, 3)).thenReturn(1);
+    when(userRepository.debitVoteNum(1, 3)).thenReturn(0);
+
+    assertThrows(RuntimeException.class, () -> {
+      rsService.vote(vote, 1);
+    });
+    verify(voteRepository, never()).save(any());
   }
 
   @Test
@@ -96,6 +143,57 @@ class RsServiceTest {
     });
   }
 
+  @Test
+  void shouldVoteThroughWriteBehindBufferWhenEnabled() {
+    when(voteWriteBehindBuffer.isEnabled()).thenReturn(true);
+
+    rsService.vote(vote, 1);
+
+    verify(voteWriteBehindBuffer).vote(vote, 1);
+    verifyNoInteractions(userRepository, rsEventRepository, voteRepository);
+  }
+
+  @Test
+  void shouldVoteAllWithOneDebitPerUser() {
+    when(rsEventRepository.findIdsByIdIn(any())).thenReturn(Arrays.asList(1, 2));
+    when(userRepository.findAllById(any())).thenReturn(Arrays.asList(
+            UserDto.builder().id(1).voteNum(10).build(), UserDto.builder().id(2).voteNum(5).build()));
+    when(voteJdbcRepository.debitUserVoteNums(any())).thenReturn(Collections.emptySet());
+
+    List<VoteResult> results = rsService.voteAll(Arrays.asList(
+            batchVote(1, 1, 4), batchVote(1, 2, 6), batchVote(2, 1, 5),
+            batchVote(1, 1, 1), batchVote(2, 3, 1), batchVote(3, 1, 1), batchVote(2, 2, 0)));
+
+    assertEquals(results.stream().map(VoteResult::getError).collect(Collectors.toList()),
+            Arrays.asList(null, null, null, "vote num not enough", "rs event not exist", "user not exist",
+                    "invalid vote num"));
+    Map<Integer, Integer> rsEventVoteNums = new HashMap<>();
+    rsEventVoteNums.put(1, 9);
+    rsEventVoteNums.put(2, 6);
+    Map<Integer, Integer> userVoteNums = new HashMap<>();
+    userVoteNums.put(1, 10);
+    userVoteNums.put(2, 5);
+    verify(voteJdbcRepository).increaseRsEventVoteNums(rsEventVoteNums);
+    verify(voteJdbcRepository).debitUserVoteNums(userVoteNums);
+    verify(voteRepository).saveAll(anyIterable());
+  }
+
+  @Test
+  void shouldRefundBatchVotesWhenBalanceSpentMeanwhile() {
+    rsEventLeaderboard.put(RankedEvent.builder().id(1).voteNum(0).build());
+    when(rsEventRepository.findIdsByIdIn(any())).thenReturn(Collections.singletonList(1));
+    when(userRepository.findAllById(any())).thenReturn(Arrays.asList(
+            UserDto.builder().id(1).voteNum(10).build(), UserDto.builder().id(2).voteNum(5).build()));
+    when(voteJdbcRepository.debitUserVoteNums(any())).thenReturn(Collections.singleton(2));
+
+    List<VoteResult> results = rsService.voteAll(Arrays.asList(batchVote(1, 1, 4), batchVote(2, 1, 5)));
+
+    assertEquals(results.get(0).isSuccess(), true);
+    assertEquals(results.get(1).getError(), "vote num not enough");
+    verify(voteJdbcRepository).increaseRsEventVoteNums(Collections.singletonMap(1, -5));
+    assertEquals(rsEventLeaderboard.find(1).get().getVoteNum(), 4);
+  }
+
   @Test
   void should_buy_event_when_rank_num_is_exist() {
     UserDto userDto = UserDto.builder().userName("Mike").age(20).phone("13386688553")
@@ -104,14 +202,52 @@ class RsServiceTest {
             .voteNum(10).user(userDto).build();
 
     when(rsEventRepository.findByRankNum(anyInt())).thenReturn(Optional.of(rsEventDto));
+    when(rsEventRepository.findById(anyInt())).thenReturn(Optional.of(rsEventDto));
     when(userRepository.findById(anyInt())).thenReturn(Optional.of(userDto));
 
-    rsService.buy(100, 1, rsEvent);
+    ResponseEntity response = rsService.buy(100, 1, rsEvent);
 
     verify(rsEventRepository).save(rsEventDto);
+    verify(tradeRepository).save(TradeDto.builder().amount(100).rankNum(1)
+            .rsEvent(rsEventDto).user(userDto).build());
 
+    assertEquals(response.getStatusCode(), HttpStatus.OK);
     assertEquals(rsEventDto.getAmount(), 100);
     assertEquals(rsEventDto.getRankNum(), 1);
+    assertEquals(rsEventDto.getEventName(), "ForthEvent");
+  }
+
+  @Test
+  void should_append_trade_to_ledger_when_enabled() {
+    UserDto userDto = UserDto.builder().id(1).userName("Mike").voteNum(20).build();
+    RsEventDto rsEventDto = RsEventDto.builder().id(1).eventName("FirstEvent").keyword("Economy")
+            .rankNum(1).user(userDto).build();
+    when(rsEventRepository.findByRankNum(1)).thenReturn(Optional.of(rsEventDto));
+    when(rsEventRepository.findById(1)).thenReturn(Optional.of(rsEventDto));
+    when(userRepository.findById(anyInt())).thenReturn(Optional.of(userDto));
+    when(tradeLedger.isEnabled()).thenReturn(true);
+
+    rsService.buy(100, 1, rsEvent);
+
+    verify(tradeLedger).append(TradeDto.builder().amount(100).rankNum(1)
+            .rsEvent(rsEventDto).user(userDto).build());
+    verify(tradeRepository, never()).save(any());
+  }
+
+  @Test
+  void should_not_save_event_when_ledger_append_fails() {
+    UserDto userDto = UserDto.builder().id(1).userName("Mike").voteNum(20).build();
+    RsEventDto rsEventDto = RsEventDto.builder().id(1).eventName("FirstEvent").keyword("Economy")
+            .rankNum(1).user(userDto).build();
+    when(rsEventRepository.findByRankNum(1)).thenReturn(Optional.of(rsEventDto));
+    when(rsEventRepository.findById(1)).thenReturn(Optional.of(rsEventDto));
+    when(userRepository.findById(anyInt())).thenReturn(Optional.of(userDto));
+    when(tradeLedger.isEnabled()).thenReturn(true);
+    doThrow(new IllegalStateException("timed out appending a trade")).when(tradeLedger).append(any());
+
+    assertThrows(IllegalStateException.class, () -> rsService.buy(100, 1, rsEvent));
+
+    verify(rsEventRepository, never()).save(any());
   }
 
   @Test
@@ -119,9 +255,29 @@ class RsServiceTest {
     when(rsEventRepository.findByRankNum(anyInt())).thenReturn(Optional.empty());
     when(userRepository.findById(anyInt())).thenReturn(Optional.empty());
 
-    assertThrows(RuntimeException.class, () -> {
-      rsService.buy(100, 10, rsEvent);
-    });
+    ResponseEntity response = rsService.buy(100, 10, rsEvent);
+
+    assertEquals(response.getStatusCode(), HttpStatus.BAD_REQUEST);
+    verify(rsEventRepository, never()).save(any());
+    verify(tradeRepository, never()).save(any());
   }
 
+  @Test
+  void should_not_buy_event_when_amount_is_lower_without_reading_database() {
+    UserDto userDto = UserDto.builder().id(1).userName("Mike").voteNum(20).build();
+    RsEventDto rsEventDto = RsEventDto.builder().id(1).eventName("FirstEvent").keyword("Economy")
+            .rankNum(1).amount(100).user(userDto).build();
+    when(rsEventRepository.findByRankNum(1)).thenReturn(Optional.of(rsEventDto));
+    when(userRepository.findById(anyInt())).thenReturn(Optional.of(userDto));
+
+    assertEquals(rsService.buy(50, 1, rsEvent).getStatusCode(), HttpStatus.BAD_REQUEST);
+    assertEquals(rsService.buy(80, 1, rsEvent).getStatusCode(), HttpStatus.BAD_REQUEST);
+
+    verify(rsEventRepository, times(1)).findByRankNum(1);
+    verify(rsEventRepository, never()).save(any());
+  }
+
+  private Vote batchVote(int userId, int rsEventId, int voteNum) {
+    return Vote.builder().userId(userId).rsEventId(rsEventId).voteNum(voteNum).time(localDateTime).build();
+  }
 }
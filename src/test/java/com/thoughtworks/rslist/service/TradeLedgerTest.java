@@ -0,0 +1,212 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.dto.RsEventDto;
+import com.thoughtworks.rslist.dto.TradeDto;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class TradeLedgerTest {
+
+  @TempDir
+  Path tempDir;
+
+  Path ledgerPath;
+
+  TradeLedger tradeLedger;
+
+  @Mock
+  TradeRepository tradeRepository;
+
+  @Mock
+  UserRepository userRepository;
+
+  @Mock
+  RsEventRepository rsEventRepository;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @Captor
+  ArgumentCaptor<List<TradeDto>> saved;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    ledgerPath = tempDir.resolve("trade-ledger.log");
+    when(userRepository.existsById(anyInt())).thenReturn(true);
+    when(rsEventRepository.existsById(anyInt())).thenReturn(true);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    tradeLedger.stop();
+  }
+
+  @Test
+  void shouldAppendDurablyAndDrainInOrder() throws Exception {
+    tradeLedger = start();
+
+    tradeLedger.append(trade(100, 1));
+    tradeLedger.append(trade(200, 2));
+
+    assertEquals(Files.readAllLines(ledgerPath), Arrays.asList("1,100,1,3,4", "2,200,2,3,4"));
+    assertEquals(tradeLedger.undrainedCount(), 2);
+
+    tradeLedger.drain();
+
+    verify(tradeRepository).saveAll(saved.capture());
+    assertEquals(saved.getValue().get(0).getLedgerSeq(), 1);
+    assertEquals(saved.getValue().get(1).getAmount(), 200);
+    assertEquals(tradeLedger.undrainedCount(), 0);
+  }
+
+  @Test
+  void shouldReplayUndrainedTradesAfterRestart() throws Exception {
+    Files.write(ledgerPath, "1,100,1,3,4\n2,200,2,3,4\n3,300,3,3,4\n4,40".getBytes(StandardCharsets.UTF_8));
+    when(tradeRepository.findMaxLedgerSeq()).thenReturn(1L);
+
+    tradeLedger = start();
+
+    assertEquals(tradeLedger.undrainedCount(), 2);
+    tradeLedger.append(trade(400, 4));
+    assertEquals(Files.readAllLines(ledgerPath).get(3), "4,400,4,3,4");
+  }
+
+  @Test
+  void shouldCompactLedgerWhenEverythingDrained() throws Exception {
+    Files.write(ledgerPath, "1,100,1,3,4\n2,200,2,3,4\n".getBytes(StandardCharsets.UTF_8));
+    when(tradeRepository.findMaxLedgerSeq()).thenReturn(2L);
+
+    tradeLedger = start();
+    tradeLedger.append(trade(300, 3));
+
+    assertEquals(Files.readAllLines(ledgerPath), Arrays.asList("3,300,3,3,4"));
+  }
+
+  @Test
+  void shouldTruncateLedgerOnceDrained() throws Exception {
+    tradeLedger = start();
+    tradeLedger.append(trade(100, 1));
+    tradeLedger.append(trade(200, 2));
+
+    tradeLedger.drain();
+
+    assertEquals(Files.size(ledgerPath), 0L);
+    tradeLedger.append(trade(300, 3));
+    assertEquals(Files.readAllLines(ledgerPath), Arrays.asList("3,300,3,3,4"));
+  }
+
+  @Test
+  void shouldRewriteLargeLedgerWithOnlyUndrainedTrades() throws Exception {
+    Files.write(ledgerPath, "1,100,1,3,4\n2,200,2,3,4\n3,300,3,3,4\n".getBytes(StandardCharsets.UTF_8));
+    when(tradeRepository.findMaxLedgerSeq()).thenReturn(1L);
+    tradeLedger = new TradeLedger(tradeRepository, userRepository, rsEventRepository,
+            transactionManager, true, ledgerPath.toString(), 60_000, 500, 1);
+    tradeLedger.start();
+
+    tradeLedger.compact();
+
+    assertEquals(Files.readAllLines(ledgerPath), Arrays.asList("2,200,2,3,4", "3,300,3,3,4"));
+    tradeLedger.append(trade(400, 4));
+    assertEquals(Files.readAllLines(ledgerPath).get(2), "4,400,4,3,4");
+    assertEquals(tradeLedger.undrainedCount(), 3);
+  }
+
+  @Test
+  void shouldCutFailedWriteOutOfLedgerAndReuseItsSequence() throws Exception {
+    AtomicBoolean failNext = new AtomicBoolean();
+    tradeLedger = new TradeLedger(tradeRepository, userRepository, rsEventRepository,
+            transactionManager, true, ledgerPath.toString(), 60_000, 500, Long.MAX_VALUE) {
+      @Override
+      void write(ByteBuffer buffer) throws IOException {
+        if (failNext.getAndSet(false)) {
+          buffer.limit(buffer.limit() / 2);
+          super.write(buffer);
+          throw new IOException("disk full");
+        }
+        super.write(buffer);
+      }
+    };
+    tradeLedger.start();
+    tradeLedger.append(trade(100, 1));
+
+    failNext.set(true);
+    assertThrows(IllegalStateException.class, () -> tradeLedger.append(trade(200, 2)));
+    tradeLedger.append(trade(300, 3));
+
+    assertEquals(Files.readAllLines(ledgerPath), Arrays.asList("1,100,1,3,4", "2,300,3,3,4"));
+    assertEquals(tradeLedger.undrainedCount(), 2);
+  }
+
+  @Test
+  void shouldDeadLetterTradeOfDeletedEventAndDrainTheRest() throws Exception {
+    Files.write(ledgerPath, "1,100,1,3,4\n2,200,2,3,9\n3,300,3,3,4\n".getBytes(StandardCharsets.UTF_8));
+    when(rsEventRepository.existsById(9)).thenReturn(false);
+    doThrow(new IllegalStateException()).when(tradeRepository)
+        .saveAll(argThat((List<TradeDto> trades) -> trades.stream().anyMatch(trade -> trade.getLedgerSeq() == 2)));
+    tradeLedger = start();
+
+    tradeLedger.drain();
+
+    assertEquals(tradeLedger.undrainedCount(), 0);
+    assertEquals(tradeLedger.deadLetters().size(), 1);
+    assertEquals(tradeLedger.deadLetters().get(0).getSequence(), 2L);
+    assertEquals(Files.size(ledgerPath), 0L);
+  }
+
+  @Test
+  void shouldKeepTradesForRetryWhenSaveFailsForAPassingReason() throws Exception {
+    Files.write(ledgerPath, "1,100,1,3,4\n2,200,2,3,4\n".getBytes(StandardCharsets.UTF_8));
+    doThrow(new IllegalStateException()).when(tradeRepository).saveAll(anyList());
+    tradeLedger = start();
+
+    assertThrows(IllegalStateException.class, () -> tradeLedger.drain());
+
+    assertEquals(tradeLedger.undrainedCount(), 2);
+    assertEquals(tradeLedger.deadLetters().size(), 0);
+    assertEquals(Files.readAllLines(ledgerPath).size(), 2);
+  }
+
+  private TradeLedger start() throws Exception {
+    TradeLedger ledger = new TradeLedger(tradeRepository, userRepository, rsEventRepository,
+            transactionManager, true, ledgerPath.toString(), 60_000, 500, Long.MAX_VALUE);
+    ledger.start();
+    return ledger;
+  }
+
+  private TradeDto trade(int amount, int rankNum) {
+    return TradeDto.builder().amount(amount).rankNum(rankNum)
+            .user(UserDto.builder().id(3).build())
+            .rsEvent(RsEventDto.builder().id(4).build())
+            .build();
+  }
+}
@@ -0,0 +1,143 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.UserDeletion;
+import com.thoughtworks.rslist.dto.RsEventSummary;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.TradeRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import com.thoughtworks.rslist.repository.VoteRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class UserDeletionServiceTest {
+
+  UserDeletionService userDeletionService;
+
+  RsEventLeaderboard rsEventLeaderboard;
+
+  RsEventSearchIndex rsEventSearchIndex;
+
+  UserService userService;
+
+  @Mock
+  UserRepository userRepository;
+
+  @Mock
+  RsEventRepository rsEventRepository;
+
+  @Mock
+  VoteRepository voteRepository;
+
+  @Mock
+  TradeRepository tradeRepository;
+
+  @Mock
+  VoteRollupRepository voteRollupRepository;
+
+  @Mock
+  VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+  @Mock
+  TradeLedger tradeLedger;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventSearchIndex = new RsEventSearchIndex(rsEventLeaderboard);
+    userService = new UserService(rsEventRepository, userRepository, voteRepository, 100);
+    userDeletionService = new UserDeletionService(userRepository, rsEventRepository, voteRepository,
+        tradeRepository, voteRollupRepository, rsEventLeaderboard, rsEventSearchIndex,
+        new RankAuction(rsEventRepository), voteWriteBehindBuffer, tradeLedger, userService, transactionManager);
+    when(userRepository.findById(1)).thenReturn(Optional.of(UserDto.builder().id(1).voteNum(10).build()));
+    add(10, "early");
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    userDeletionService.stop();
+  }
+
+  @Test
+  void shouldRemoveEventCreatedWhileDeletionRan() throws Exception {
+    AtomicBoolean blockedWhenRead = new AtomicBoolean();
+    RsEventSummary early = summary(10, "early");
+    RsEventSummary late = summary(11, "late");
+    when(rsEventRepository.findSummariesByUserId(1)).thenAnswer(invocation -> {
+      blockedWhenRead.set(!userService.findById(1).isPresent());
+      // a create that found the user before the block commits after the first read
+      add(11, "late");
+      return Collections.singletonList(early);
+    }).thenReturn(Arrays.asList(early, late));
+
+    UserDeletion job = await(userDeletionService.submit(1).get().getId());
+
+    assertEquals(job.getStatus(), UserDeletion.Status.DONE);
+    assertEquals(job.getRsEventCount(), 2);
+    assertTrue(blockedWhenRead.get());
+    assertFalse(rsEventLeaderboard.find(10).isPresent());
+    assertFalse(rsEventLeaderboard.find(11).isPresent());
+    assertEquals(rsEventSearchIndex.termCount(), 0);
+  }
+
+  @Test
+  void shouldRestoreEventsAndUnblockUserWhenDeletionFails() throws Exception {
+    RsEventSummary early = summary(10, "early");
+    when(rsEventRepository.findSummariesByUserId(1)).thenReturn(Collections.singletonList(early));
+    when(voteRepository.bulkDeleteByUserId(1)).thenThrow(new IllegalStateException("database away"));
+
+    UserDeletion job = await(userDeletionService.submit(1).get().getId());
+
+    assertEquals(job.getStatus(), UserDeletion.Status.FAILED);
+    assertTrue(rsEventLeaderboard.find(10).isPresent());
+    assertTrue(userService.findById(1).isPresent());
+  }
+
+  private void add(int id, String eventName) {
+    RankedEvent rankedEvent = RankedEvent.builder().id(id).eventName(eventName).keyword("keyword").userId(1).build();
+    rsEventLeaderboard.put(rankedEvent);
+    rsEventSearchIndex.index(rankedEvent);
+  }
+
+  private RsEventSummary summary(int id, String eventName) {
+    RsEventSummary summary = mock(RsEventSummary.class);
+    when(summary.getId()).thenReturn(id);
+    when(summary.getEventName()).thenReturn(eventName);
+    when(summary.getKeyword()).thenReturn("keyword");
+    when(summary.getUserId()).thenReturn(1);
+    return summary;
+  }
+
+  private UserDeletion await(String jobId) throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      UserDeletion job = userDeletionService.find(jobId).get();
+      if (job.getStatus() == UserDeletion.Status.DONE || job.getStatus() == UserDeletion.Status.FAILED) {
+        return job;
+      }
+      Thread.sleep(50);
+    }
+    fail("user deletion did not finish");
+    return null;
+  }
+}
@@ -0,0 +1,107 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.domain.VoteResult;
+import com.thoughtworks.rslist.domain.VoteTicket;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.exception.RequestNotValidException;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class VoteQueueTest {
+
+  VoteQueue voteQueue;
+
+  RsEventLeaderboard rsEventLeaderboard;
+
+  @Mock
+  RsService rsService;
+
+  @Mock
+  RsEventRepository rsEventRepository;
+
+  @Mock
+  UserRepository userRepository;
+
+  @Mock
+  VoteRepository voteRepository;
+
+  @Captor
+  ArgumentCaptor<List<Vote>> applied;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventLeaderboard.put(RankedEvent.builder().id(1).eventName("FirstEvent").keyword("Economy").build());
+    rsEventLeaderboard.put(RankedEvent.builder().id(2).eventName("SecondEvent").keyword("Politics").build());
+    when(userRepository.findById(3)).thenReturn(Optional.of(UserDto.builder().id(3).voteNum(10).build()));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    voteQueue.stop();
+  }
+
+  @Test
+  void shouldApplyQueuedVotesInOneBatchAndUpdateTickets() throws Exception {
+    voteQueue = queue(1, 10);
+    VoteTicket first = voteQueue.submit(Vote.builder().userId(3).voteNum(2).build(), 1).get();
+    VoteTicket second = voteQueue.submit(Vote.builder().userId(3).voteNum(9).build(), 2).get();
+    when(rsService.voteAll(anyList())).thenReturn(Arrays.asList(
+        VoteResult.builder().success(true).build(),
+        VoteResult.builder().success(false).error("vote num not enough").build()));
+
+    voteQueue.start();
+    voteQueue.stop();
+
+    verify(rsService).voteAll(applied.capture());
+    assertEquals(applied.getValue().get(1).getRsEventId(), 2);
+    assertEquals(voteQueue.find(first.getId()).get().getStatus(), VoteTicket.Status.APPLIED);
+    assertEquals(voteQueue.find(second.getId()).get().getStatus(), VoteTicket.Status.REJECTED);
+    assertEquals(voteQueue.find(second.getId()).get().getError(), "vote num not enough");
+  }
+
+  @Test
+  void shouldRefuseVotesWhenShardIsFull() {
+    voteQueue = queue(2, 1);
+
+    assertEquals(voteQueue.submit(Vote.builder().userId(3).voteNum(1).build(), 1).isPresent(), true);
+    assertEquals(voteQueue.submit(Vote.builder().userId(3).voteNum(1).build(), 2).isPresent(), true);
+    assertEquals(voteQueue.submit(Vote.builder().userId(3).voteNum(1).build(), 1).isPresent(), false);
+    assertEquals(voteQueue.queuedCount(), 2);
+  }
+
+  @Test
+  void shouldRejectVoteForUnknownEventOrOverBalance() {
+    voteQueue = queue(1, 10);
+
+    assertThrows(RequestNotValidException.class,
+        () -> voteQueue.submit(Vote.builder().userId(3).voteNum(1).build(), 100));
+    assertThrows(RequestNotValidException.class,
+        () -> voteQueue.submit(Vote.builder().userId(3).voteNum(11).build(), 1));
+  }
+
+  private VoteQueue queue(int shards, int capacity) {
+    return new VoteQueue(rsService, rsEventLeaderboard,
+        new UserService(rsEventRepository, userRepository, voteRepository, 100), true, shards, capacity, 100);
+  }
+}
@@ -0,0 +1,161 @@
+package com.thoughtworks.rslist.service;
+
+import com.thoughtworks.rslist.domain.Vote;
+import com.thoughtworks.rslist.dto.UserDto;
+import com.thoughtworks.rslist.repository.RsEventRepository;
+import com.thoughtworks.rslist.repository.UserRepository;
+import com.thoughtworks.rslist.repository.VoteJdbcRepository;
+import com.thoughtworks.rslist.repository.VoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+class VoteWriteBehindBufferTest {
+
+  VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+  RsEventLeaderboard rsEventLeaderboard;
+
+  @Mock
+  RsEventRepository rsEventRepository;
+
+  @Mock
+  UserRepository userRepository;
+
+  @Mock
+  VoteRepository voteRepository;
+
+  @Mock
+  VoteJdbcRepository voteJdbcRepository;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  void setUp() {
+    initMocks(this);
+    rsEventLeaderboard = new RsEventLeaderboard();
+    rsEventLeaderboard.put(RankedEvent.builder().id(1).eventName("FirstEvent").keyword("Economy").build());
+    rsEventLeaderboard.put(RankedEvent.builder().id(2).eventName("SecondEvent").keyword("Politics").build());
+    voteWriteBehindBuffer = new VoteWriteBehindBuffer(rsEventRepository, userRepository, voteRepository,
+            voteJdbcRepository, rsEventLeaderboard,
+            new UserService(rsEventRepository, userRepository, voteRepository, 100), transactionManager, true, 1000, 1000);
+    when(userRepository.findById(anyInt()))
+            .thenReturn(Optional.of(UserDto.builder().id(1).voteNum(10).build()));
+    when(userRepository.existsById(anyInt())).thenReturn(true);
+    when(rsEventRepository.existsById(anyInt())).thenReturn(true);
+  }
+
+  @Test
+  void shouldDebitInMemoryAndFlushAggregatedCounters() {
+    voteWriteBehindBuffer.vote(vote(3), 1);
+    voteWriteBehindBuffer.vote(vote(4), 1);
+    voteWriteBehindBuffer.vote(vote(2), 2);
+
+    verifyNoInteractions(voteRepository, voteJdbcRepository);
+    assertEquals(rsEventLeaderboard.find(1).get().getVoteNum(), 0);
+    assertEquals(voteWriteBehindBuffer.pendingCount(), 3);
+
+    voteWriteBehindBuffer.fold();
+
+    assertEquals(rsEventLeaderboard.find(1).get().getVoteNum(), 7);
+    assertEquals(rsEventLeaderboard.find(2).get().getVoteNum(), 2);
+
+    voteWriteBehindBuffer.flush();
+
+    Map<Integer, Integer> rsEventVoteNums = new HashMap<>();
+    rsEventVoteNums.put(1, 7);
+    rsEventVoteNums.put(2, 2);
+    verify(voteRepository).saveAll(anyIterable());
+    verify(voteJdbcRepository).increaseRsEventVoteNums(rsEventVoteNums);
+    verify(voteJdbcRepository).decreaseUserVoteNums(Collections.singletonMap(1, 9));
+    verify(voteJdbcRepository).addVoteRollups(anyList());
+    verify(userRepository, times(1)).findById(1);
+    assertEquals(voteWriteBehindBuffer.pendingCount(), 0);
+    assertEquals(rsEventLeaderboard.find(1).get().getVoteNum(), 7);
+  }
+
+  @Test
+  void shouldReadBalanceAgainOnceUsersVotesAreWritten() {
+    voteWriteBehindBuffer.vote(vote(3), 1);
+    voteWriteBehindBuffer.vote(vote(4), 1);
+    voteWriteBehindBuffer.flush();
+    when(userRepository.findById(1)).thenReturn(Optional.of(UserDto.builder().id(1).voteNum(3).build()));
+
+    voteWriteBehindBuffer.vote(vote(3), 1);
+
+    verify(userRepository, times(2)).findById(1);
+    assertThrows(RuntimeException.class, () -> voteWriteBehindBuffer.vote(vote(1), 1));
+  }
+
+  @Test
+  void shouldRejectVoteWhenBalanceNotEnough() {
+    voteWriteBehindBuffer.vote(vote(8), 1);
+
+    assertThrows(RuntimeException.class, () -> voteWriteBehindBuffer.vote(vote(3), 1));
+    voteWriteBehindBuffer.fold();
+    assertEquals(rsEventLeaderboard.find(1).get().getVoteNum(), 8);
+  }
+
+  @Test
+  void shouldRejectVoteWhenEventNotExist() {
+    assertThrows(RuntimeException.class, () -> voteWriteBehindBuffer.vote(vote(1), 3));
+  }
+
+  @Test
+  void shouldKeepVotesWhenFlushFailed() {
+    voteWriteBehindBuffer.vote(vote(3), 1);
+    when(voteJdbcRepository.increaseRsEventVoteNums(Collections.singletonMap(1, 3)))
+            .thenThrow(new IllegalStateException());
+
+    assertThrows(IllegalStateException.class, () -> voteWriteBehindBuffer.flush());
+
+    assertEquals(voteWriteBehindBuffer.pendingCount(), 1);
+    assertEquals(voteWriteBehindBuffer.deadLetters().size(), 0);
+  }
+
+  @Test
+  void shouldDeadLetterVoteOfDeletedUserAndWriteTheRest() {
+    voteWriteBehindBuffer.vote(vote(3), 1);
+    voteWriteBehindBuffer.vote(Vote.builder().userId(2).voteNum(4).time(LocalDateTime.now()).build(), 2);
+    voteWriteBehindBuffer.vote(vote(1), 1);
+    when(userRepository.existsById(2)).thenReturn(false);
+    when(voteJdbcRepository.decreaseUserVoteNums(argThat(userVoteNums -> userVoteNums.containsKey(2))))
+            .thenThrow(new IllegalStateException());
+
+    voteWriteBehindBuffer.flush();
+
+    verify(voteJdbcRepository).decreaseUserVoteNums(Collections.singletonMap(1, 3));
+    verify(voteJdbcRepository).decreaseUserVoteNums(Collections.singletonMap(1, 1));
+    assertEquals(voteWriteBehindBuffer.pendingCount(), 0);
+    assertEquals(voteWriteBehindBuffer.deadLetters().size(), 1);
+    assertEquals(voteWriteBehindBuffer.deadLetters().get(0).getUserId(), 2);
+    voteWriteBehindBuffer.fold();
+    assertEquals(rsEventLeaderboard.find(2).get().getVoteNum(), 0);
+
+    voteWriteBehindBuffer.vote(Vote.builder().userId(2).voteNum(10).build(), 2);
+  }
+
+  private Vote vote(int voteNum) {
+    return Vote.builder().userId(1).voteNum(voteNum).time(LocalDateTime.now()).build();
+  }
+}